@@ -0,0 +1,27 @@
+import java.lang.management.ManagementFactory;
+
+// Reads how many bytes the current thread has allocated so far (HotSpot's ThreadMXBean extension).
+// Used to check that the simulation tick and the render path don't produce garbage.
+public class AllocationProbe {
+    private static final com.sun.management.ThreadMXBean THREADS = findThreadBean();
+
+    private static com.sun.management.ThreadMXBean findThreadBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if (bean.isThreadAllocatedMemorySupported()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+                return bean;
+            }
+        }
+        return null;
+    }
+
+    public static boolean isSupported() {
+        return THREADS != null;
+    }
+
+    // Total bytes allocated by the calling thread, or -1 if the JVM can't tell us
+    public static long currentThreadAllocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : -1;
+    }
+}
@@ -0,0 +1,79 @@
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+// What the game loads before it starts, off the event dispatch thread: images from the classpath
+// (so they load the same from a jar or a build directory) and a SpriteCache with every sprite
+// already built, so the first frames don't stall rasterizing them.
+public class Assets {
+    public static final String SPLASH_IMAGE = "opening.png";
+
+    private final SpriteCache sprites;
+
+    private Assets(SpriteCache sprites) {
+        this.sprites = sprites;
+    }
+
+    public SpriteCache getSprites() {
+        return sprites;
+    }
+
+    // Builds the sprites in parallel on the executor; config is the display they are drawn to
+    // (null when headless)
+    public static CompletableFuture<Assets> load(GraphicsConfiguration config, Executor executor) {
+        return new SpriteCache(config, false).prewarm(executor).thenApply(Assets::new);
+    }
+
+    public static CompletableFuture<BufferedImage> loadImage(String name, GraphicsConfiguration config, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return readImage(name, config);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    // Decodes an image from the classpath and copies it into one laid out like the display, so
+    // drawing it is a plain copy instead of a format conversion on every paint
+    public static BufferedImage readImage(String name, GraphicsConfiguration config) throws IOException {
+        BufferedImage decoded;
+        try (InputStream in = Assets.class.getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException(name + " is not on the classpath");
+            }
+            decoded = ImageIO.read(in);
+        }
+        if (decoded == null) {
+            throw new IOException(name + " is not in a format ImageIO can read");
+        }
+        if (config == null) {
+            return decoded;
+        }
+        BufferedImage image = config.createCompatibleImage(decoded.getWidth(), decoded.getHeight(), decoded.getTransparency());
+        Graphics2D g = image.createGraphics();
+        g.drawImage(decoded, 0, 0, null);
+        g.dispose();
+        return image;
+    }
+
+    // The display the game window will most likely open on, or null when headless
+    public static GraphicsConfiguration defaultConfiguration() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return null;
+        }
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+    }
+
+    // Prints how long after the JVM started something happened
+    public static void logStartup(String what) {
+        long millis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        System.out.println("Startup: " + what + " after " + millis + " ms");
+    }
+}
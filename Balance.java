@@ -0,0 +1,63 @@
+import java.lang.reflect.Field;
+
+// The numbers that decide how hard the game is, gathered in one place so BalanceHarness can try
+// other values. The defaults are the game as designed; give a GameSimulation another Balance
+// when creating it.
+// Balance isn't saved in recordings or keyframes, so only the defaults replay correctly.
+public class Balance {
+    // Enemy speed in pixels per second: base + perLevel * level + spread * random(0-1)
+    public float enemyBaseSpeed = 45f;
+    public float enemySpeedPerLevel = 9f;
+    public float enemySpeedSpread = 30f;
+
+    // Enemies on a level: (base + perLevel * level) * the enemy count multiplier
+    public int enemyBaseCount = 3;
+    public int enemiesPerLevel = 2;
+
+    // Seconds of survival to level up: first + perLevel * level (first only for level 1)
+    public double firstLevelSeconds = 10;
+    public double levelSecondsPerLevel = 5;
+
+    // Chance in ten that the Shield Module blocks a hit in the boss level (whole tenths, so the
+    // default draws the same random numbers as always)
+    public int shieldBlocksInTen = 3;
+
+    // Boss speed in pixels per second; split bosses get splitBaseSpeed + (90 - size)
+    public float bossSpeed = 30f;
+    public float splitBossBaseSpeed = 36f;
+
+    // Sets a field by name from text, for command lines like enemySpeedPerLevel=12
+    public void set(String name, String value) {
+        try {
+            Field field = Balance.class.getField(name);
+            Class<?> type = field.getType();
+            if (type == float.class) {
+                field.setFloat(this, Float.parseFloat(value));
+            } else if (type == int.class) {
+                field.setInt(this, Integer.parseInt(value));
+            } else {
+                field.setDouble(this, Double.parseDouble(value));
+            }
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException("No balance knob named " + name);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // name=value for every knob
+    public String describe() {
+        StringBuilder text = new StringBuilder();
+        for (Field field : Balance.class.getFields()) {
+            try {
+                if (text.length() > 0) {
+                    text.append(", ");
+                }
+                text.append(field.getName()).append('=').append(field.get(this));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,287 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Monte Carlo balancing: plays thousands of seeded headless games with scripted players (see
+// BotPolicy) on every core, and reports per policy how long they survived, which level they
+// reached, how often they beat the boss and how their lives went over time.
+// Game i is played by policy i % policies with seed firstSeed + i / policies, so every policy
+// meets the same worlds, and the results don't depend on the thread count.
+// Usage: java BalanceHarness [--games 2000] [--threads <cores>] [--policies flee,kite,...]
+//            [--seed 1] [--max-seconds 300] [--csv games.csv] [--json report.json]
+//            [--set knob=value ...]
+// --set changes a Balance knob (e.g. --set enemySpeedPerLevel=12); --csv writes one row per
+// game, --json the aggregated report.
+public class BalanceHarness {
+    private static final int SAMPLE_SECONDS = 10; // lives over time, every this many seconds
+    private static final String TIMED_OUT = "timed-out", DIED = "died", WON = "won";
+
+    // One finished game
+    static class Result {
+        String policy;
+        long seed;
+        String outcome;
+        int survivalSeconds;
+        int level;
+        byte[] lives; // at each sample, 0 once dead; kept at the last value after a win
+    }
+
+    public static void main(String[] args) throws Exception {
+        int games = 2000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String[] policies = BotPolicy.NAMES;
+        long firstSeed = 1;
+        int maxSeconds = 300;
+        String csv = null, json = null;
+        Balance balance = new Balance();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--games")) {
+                games = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--policies")) {
+                policies = args[++i].split(",");
+            } else if (args[i].equals("--seed")) {
+                firstSeed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--max-seconds")) {
+                maxSeconds = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--csv")) {
+                csv = args[++i];
+            } else if (args[i].equals("--json")) {
+                json = args[++i];
+            } else if (args[i].equals("--set")) {
+                String[] knob = args[++i].split("=", 2);
+                balance.set(knob[0], knob[1]);
+            } else {
+                throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+        for (String policy : policies) {
+            BotPolicy.create(policy); // fail on a typo before playing anything
+        }
+
+        System.out.printf("%d games, %d threads, policies %s, up to %d s each%n",
+                games, threads, String.join(",", policies), maxSeconds);
+        System.out.println("Balance: " + balance.describe());
+
+        Result[] results = new Result[games];
+        long start = System.nanoTime();
+        play(results, threads, policies, firstSeed, maxSeconds, balance);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int cores = Math.min(threads, Runtime.getRuntime().availableProcessors()); // busy ones
+
+        printSummary(results, policies, maxSeconds);
+        System.out.printf("%d games in %.2f s: %.1f games/s, %.1f games/s per core (%d threads on %d cores)%n",
+                games, seconds, games / seconds, games / seconds / cores, threads, cores);
+
+        if (csv != null) {
+            writeCsv(csv, results, maxSeconds);
+        }
+        if (json != null) {
+            writeJson(json, results, policies, maxSeconds, balance, games / seconds / cores);
+        }
+    }
+
+    // Workers take the next unplayed game until there are none left
+    private static void play(Result[] results, int threads, String[] policies, long firstSeed,
+                             int maxSeconds, Balance balance) throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(pool.submit(() -> {
+                    InputState input = new InputState();
+                    for (int game = next.getAndIncrement(); game < results.length; game = next.getAndIncrement()) {
+                        String policy = policies[game % policies.length];
+                        results[game] = playGame(policy, firstSeed + game / policies.length, maxSeconds, balance, input);
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    static Result playGame(String policyName, long seed, int maxSeconds, Balance balance, InputState input) {
+        GameSimulation sim = new GameSimulation(GameSimulation.DEFAULT_TICK_RATE, seed, balance);
+        sim.setEntityMover(EntityMover.serial()); // the games themselves are what runs in parallel
+        sim.skipCountdown();
+        BotPolicy policy = BotPolicy.create(policyName);
+
+        Result result = new Result();
+        result.policy = policyName;
+        result.seed = seed;
+        result.lives = new byte[maxSeconds / SAMPLE_SECONDS + 1];
+        result.lives[0] = (byte) sim.getLives();
+        int sampleTicks = sim.ticks(SAMPLE_SECONDS);
+        int maxTicks = sim.ticks(maxSeconds);
+        int tick = 0;
+        while (!sim.isGameOver() && tick < maxTicks) {
+            policy.decide(sim, input);
+            sim.step(input);
+            tick++;
+            if (tick % sampleTicks == 0) {
+                result.lives[tick / sampleTicks] = (byte) sim.getLives();
+            }
+        }
+        result.outcome = sim.isVictory() ? WON : sim.isGameOver() ? DIED : TIMED_OUT;
+        result.survivalSeconds = sim.getSurvivalSeconds();
+        result.level = sim.getCurrentLevel();
+        for (int sample = tick / sampleTicks + 1; sample < result.lives.length; sample++) {
+            result.lives[sample] = (byte) (sim.isVictory() ? sim.getLives() : 0);
+        }
+        return result;
+    }
+
+    private static List<Result> of(Result[] results, String policy) {
+        List<Result> selected = new ArrayList<>();
+        for (Result result : results) {
+            if (result.policy.equals(policy)) {
+                selected.add(result);
+            }
+        }
+        return selected;
+    }
+
+    private static int[] survival(List<Result> results) {
+        int[] seconds = new int[results.size()];
+        for (int i = 0; i < seconds.length; i++) {
+            seconds[i] = results.get(i).survivalSeconds;
+        }
+        Arrays.sort(seconds);
+        return seconds;
+    }
+
+    private static int percentile(int[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+
+    private static double mean(int[] values) {
+        long sum = 0;
+        for (int value : values) {
+            sum += value;
+        }
+        return (double) sum / values.length;
+    }
+
+    private static int count(List<Result> results, String outcome) {
+        int count = 0;
+        for (Result result : results) {
+            if (result.outcome.equals(outcome)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Games of a policy that reached each level, 1 to the boss level
+    private static int[] levels(List<Result> results) {
+        int[] levels = new int[GameSimulation.BOSS_LEVEL + 1];
+        for (Result result : results) {
+            levels[Math.min(result.level, GameSimulation.BOSS_LEVEL)]++;
+        }
+        return levels;
+    }
+
+    // [sample][lives]: games of a policy with that many lives at that sample
+    private static int[][] livesOverTime(List<Result> results, int maxSeconds) {
+        int[][] counts = new int[maxSeconds / SAMPLE_SECONDS + 1][4];
+        for (Result result : results) {
+            for (int sample = 0; sample < counts.length; sample++) {
+                counts[sample][Math.min(result.lives[sample], 3)]++;
+            }
+        }
+        return counts;
+    }
+
+    private static void printSummary(Result[] results, String[] policies, int maxSeconds) {
+        System.out.printf("%-15s %6s %8s %6s %6s %6s %8s %8s %8s  %s%n", "policy", "games", "mean s",
+                "p50 s", "p90 s", "max s", "boss win", "died", "timeout", "level reached 1..5 (5 = boss)");
+        for (String policy : policies) {
+            List<Result> games = of(results, policy);
+            if (games.isEmpty()) {
+                continue;
+            }
+            int[] seconds = survival(games);
+            int[] levels = levels(games);
+            System.out.printf("%-15s %6d %8.1f %6d %6d %6d %7.1f%% %7.1f%% %7.1f%%  %s%n", policy, games.size(),
+                    mean(seconds), percentile(seconds, 0.5), percentile(seconds, 0.9), seconds[seconds.length - 1],
+                    100.0 * count(games, WON) / games.size(), 100.0 * count(games, DIED) / games.size(),
+                    100.0 * count(games, TIMED_OUT) / games.size(), Arrays.toString(Arrays.copyOfRange(levels, 1, levels.length)));
+        }
+    }
+
+    private static void writeCsv(String file, Result[] results, int maxSeconds) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8))) {
+            out.print("policy,seed,outcome,survival_seconds,level");
+            for (int sample = 0; sample <= maxSeconds / SAMPLE_SECONDS; sample++) {
+                out.print(",lives_" + sample * SAMPLE_SECONDS + "s");
+            }
+            out.println();
+            for (Result result : results) {
+                out.print(result.policy + "," + result.seed + "," + result.outcome + "," + result.survivalSeconds + "," + result.level);
+                for (byte lives : result.lives) {
+                    out.print("," + lives);
+                }
+                out.println();
+            }
+        }
+    }
+
+    private static void writeJson(String file, Result[] results, String[] policies, int maxSeconds, Balance balance,
+                                  double gamesPerSecondPerCore) throws IOException, IllegalAccessException {
+        StringBuilder json = new StringBuilder("{\n  \"balance\": {");
+        Field[] knobs = Balance.class.getFields();
+        for (int i = 0; i < knobs.length; i++) {
+            json.append(i > 0 ? ", " : "").append('"').append(knobs[i].getName()).append("\": ").append(knobs[i].get(balance));
+        }
+        json.append("},\n  \"maxSeconds\": ").append(maxSeconds);
+        json.append(",\n  \"gamesPerSecondPerCore\": ").append(String.format(Locale.ROOT, "%.2f", gamesPerSecondPerCore));
+        json.append(",\n  \"policies\": {");
+        boolean first = true;
+        for (String policy : policies) {
+            List<Result> games = of(results, policy);
+            if (games.isEmpty()) {
+                continue;
+            }
+            int[] seconds = survival(games);
+            json.append(first ? "\n" : ",\n").append("    \"").append(policy).append("\": {");
+            first = false;
+            json.append("\n      \"games\": ").append(games.size());
+            json.append(",\n      \"survivalSeconds\": {\"mean\": ").append(String.format(Locale.ROOT, "%.2f", mean(seconds)))
+                    .append(", \"p50\": ").append(percentile(seconds, 0.5))
+                    .append(", \"p90\": ").append(percentile(seconds, 0.9))
+                    .append(", \"max\": ").append(seconds[seconds.length - 1]).append('}');
+            json.append(",\n      \"bossWinRate\": ").append(String.format(Locale.ROOT, "%.4f", (double) count(games, WON) / games.size()));
+            json.append(",\n      \"outcomes\": {\"won\": ").append(count(games, WON))
+                    .append(", \"died\": ").append(count(games, DIED))
+                    .append(", \"timedOut\": ").append(count(games, TIMED_OUT)).append('}');
+            json.append(",\n      \"levelReached\": ")
+                    .append(Arrays.toString(Arrays.copyOfRange(levels(games), 1, GameSimulation.BOSS_LEVEL + 1)));
+            json.append(",\n      \"livesOverTime\": [");
+            int[][] lives = livesOverTime(games, maxSeconds);
+            for (int sample = 0; sample < lives.length; sample++) {
+                json.append(sample > 0 ? "," : "").append("\n        {\"second\": ").append(sample * SAMPLE_SECONDS)
+                        .append(", \"games\": ").append(Arrays.toString(lives[sample])).append('}');
+            }
+            json.append("\n      ]\n    }");
+        }
+        json.append("\n  }\n}\n");
+        Files.write(Paths.get(file), json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,165 @@
+// Scripted players for BalanceHarness: each tick a policy looks at the world and presses keys.
+// They all see the same things a player would, and differ in what they go for:
+//   flee            only runs from enemies and bosses
+//   kite            circles the nearest threat at a distance (so the weapon fires at it when the
+//                   policy swings back in), picking up each level's material when it is safe
+//   greedy-food     goes for the power cell whenever it is out, then the material
+//   material-first  goes for the material, then the power cell while a life is missing
+// Everything but flee drops what it is doing to run once a threat gets close.
+// A policy keeps scratch state, so every game needs its own.
+public abstract class BotPolicy {
+    public static final String[] NAMES = {"flee", "kite", "greedy-food", "material-first"};
+
+    private static final float DANGER_GAP = 60; // pixels between player and threat
+    private static final float KITE_DISTANCE = 160;
+    private static final float DIAGONAL = 0.38f; // about sin(22.5°): eight directions, 45° each
+
+    // Filled in by look(): the way away from all threats, and the nearest threat
+    protected float awayX, awayY;
+    protected float nearestGap, nearestX, nearestY;
+
+    public static BotPolicy create(String name) {
+        if (name.equals("flee")) {
+            return new Flee();
+        } else if (name.equals("kite")) {
+            return new Kite();
+        } else if (name.equals("greedy-food")) {
+            return new GreedyFood();
+        } else if (name.equals("material-first")) {
+            return new MaterialFirst();
+        }
+        throw new IllegalArgumentException("Unknown policy " + name + ", expected one of " + String.join(", ", NAMES));
+    }
+
+    // Sets the keys for the next tick
+    public abstract void decide(GameSimulation sim, InputState input);
+
+    // Sums a push away from every enemy, boss and wall, each falling off with the square of its
+    // distance, and finds the nearest enemy or boss
+    protected void look(GameSimulation sim) {
+        float half = sim.getRobotSize() / 2f;
+        float px = sim.getRobotX() + half, py = sim.getRobotY() + half;
+        awayX = 1 / square(Math.max(px, 1)) - 1 / square(Math.max(GameSimulation.WIDTH - px, 1));
+        awayY = 1 / square(Math.max(py, 1)) - 1 / square(Math.max(GameSimulation.HEIGHT - py, 1));
+        nearestGap = Float.MAX_VALUE;
+        push(sim.getEnemies(), px, py, half);
+        push(sim.getBossRobots(), px, py, half);
+    }
+
+    private void push(EntityStore threats, float px, float py, float half) {
+        for (int i = 0; i < threats.count(); i++) {
+            float size = threats.size[i];
+            float dx = px - (threats.x[i] + size / 2), dy = py - (threats.y[i] + size / 2);
+            float distance = Math.max((float) Math.sqrt(dx * dx + dy * dy), 1);
+            awayX += dx / (distance * distance * distance);
+            awayY += dy / (distance * distance * distance);
+            float gap = distance - size / 2 - half;
+            if (gap < nearestGap) {
+                nearestGap = gap;
+                nearestX = threats.x[i] + size / 2;
+                nearestY = threats.y[i] + size / 2;
+            }
+        }
+    }
+
+    protected boolean inDanger() {
+        return nearestGap < DANGER_GAP;
+    }
+
+    protected void flee(InputState input) {
+        steer(input, awayX, awayY);
+    }
+
+    // Walks towards a point (the centre of something size pixels wide at x, y)
+    protected static void goTo(GameSimulation sim, InputState input, float x, float y, float size) {
+        float half = sim.getRobotSize() / 2f;
+        steer(input, x + size / 2 - (sim.getRobotX() + half), y + size / 2 - (sim.getRobotY() + half));
+    }
+
+    // Presses the one or two arrow keys closest to the direction (dx, dy)
+    protected static void steer(InputState input, float dx, float dy) {
+        input.clear();
+        float length = (float) Math.sqrt(dx * dx + dy * dy);
+        if (length == 0) {
+            return;
+        }
+        input.right = dx > DIAGONAL * length;
+        input.left = dx < -DIAGONAL * length;
+        input.down = dy > DIAGONAL * length;
+        input.up = dy < -DIAGONAL * length;
+    }
+
+    private static float square(float value) {
+        return value * value;
+    }
+
+    // Goes for the level's material if there is one; false if there isn't
+    protected static boolean goForMaterial(GameSimulation sim, InputState input) {
+        GameSimulation.Material material = sim.getCurrentMaterial();
+        if (material == null) {
+            return false;
+        }
+        goTo(sim, input, material.x, material.y, 25);
+        return true;
+    }
+
+    protected static boolean goForFood(GameSimulation sim, InputState input) {
+        if (sim.isFoodCollected()) {
+            return false;
+        }
+        goTo(sim, input, sim.getFoodX(), sim.getFoodY(), sim.getFoodSize());
+        return true;
+    }
+
+    static class Flee extends BotPolicy {
+        @Override
+        public void decide(GameSimulation sim, InputState input) {
+            look(sim);
+            flee(input);
+        }
+    }
+
+    static class Kite extends BotPolicy {
+        @Override
+        public void decide(GameSimulation sim, InputState input) {
+            look(sim);
+            if (inDanger()) {
+                flee(input);
+            } else if (!goForMaterial(sim, input)) {
+                if (nearestGap == Float.MAX_VALUE) {
+                    flee(input); // nothing to circle, keep off the walls
+                    return;
+                }
+                // Sideways around the nearest threat, drifting in when too far and out when too close
+                float half = sim.getRobotSize() / 2f;
+                float towardX = nearestX - (sim.getRobotX() + half), towardY = nearestY - (sim.getRobotY() + half);
+                float drift = (nearestGap - KITE_DISTANCE) / KITE_DISTANCE;
+                steer(input, -towardY + towardX * drift, towardX + towardY * drift);
+            }
+        }
+    }
+
+    static class GreedyFood extends BotPolicy {
+        @Override
+        public void decide(GameSimulation sim, InputState input) {
+            look(sim);
+            if (inDanger() || !(goForFood(sim, input) || goForMaterial(sim, input))) {
+                flee(input);
+            }
+        }
+    }
+
+    static class MaterialFirst extends BotPolicy {
+        @Override
+        public void decide(GameSimulation sim, InputState input) {
+            look(sim);
+            if (inDanger()) {
+                flee(input);
+            } else if (!goForMaterial(sim, input)) {
+                if (sim.getLives() >= sim.getMaxLives() || !goForFood(sim, input)) {
+                    flee(input);
+                }
+            }
+        }
+    }
+}
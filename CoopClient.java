@@ -0,0 +1,245 @@
+import java.io.IOException;
+import java.net.PortUnreachableException;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+
+// A co-op client (see CoopServer): sends the keys from an InputQueue to the host once per host
+// tick and decodes the host's snapshots into WorldStates, which are published to a
+// SnapshotBuffer for drawing. It runs on its own thread, waiting on a Selector for whichever
+// comes first: a datagram, the next input to send or a held datagram of NetworkConditions.
+// Drawing is a snapshot behind: the newest snapshot is shown moving on from the one before, over
+// the time the host took between them, so there is no client-side prediction and the partner's
+// own robot lags its keys by the round trip plus a snapshot interval.
+// Snapshots arrive out of order or not at all: older ones than the newest are ignored, and one
+// that is a delta against a snapshot this client doesn't have (any more) is dropped; the next
+// will be against one it acknowledged since.
+public class CoopClient implements Runnable {
+    private static final int RECEIVED = 32; // a delta's base is looked up among these
+
+    // Told about each snapshot decoded, on the client's thread
+    public interface Listener {
+        void received(WorldState state);
+    }
+
+    private final SocketAddress host;
+    private final InputQueue input;
+    private final NetworkConditions conditions;
+    private final SnapshotBuffer snapshots = new SnapshotBuffer();
+    private final WorldState[] received = new WorldState[RECEIVED];
+    private final ByteBuffer in = ByteBuffer.allocateDirect(CoopServer.MAX_DATAGRAM);
+    private final ByteBuffer out = ByteBuffer.allocateDirect(1 + 4 + 1 + 8);
+    private DatagramChannel channel;
+    private Selector selector;
+    private Listener listener;
+    private Thread thread;
+    private volatile boolean running;
+
+    private WorldState newest, previous;
+    private int nextSlot;
+    private volatile boolean partner;
+
+    // Written by the client's thread only; read for reporting
+    private volatile long packets, bytes, late, lost, missingBase, undecodable;
+    private final Histogram decodeNanos = new Histogram();
+    private final Histogram roundTripNanos = new Histogram();
+
+    public CoopClient(SocketAddress host, InputQueue input, NetworkConditions conditions) {
+        this.host = host;
+        this.input = input;
+        this.conditions = conditions;
+        for (int i = 0; i < RECEIVED; i++) {
+            received[i] = new WorldState();
+            received[i].tick = -1;
+        }
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void start() throws IOException {
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.connect(host);
+        selector = Selector.open();
+        channel.register(selector, SelectionKey.OP_READ);
+        running = true;
+        thread = new Thread(this, "Co-op client");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Asks the thread to say goodbye to the host and finish
+    public void stop() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+    }
+
+    // Stops and waits for the thread
+    public void close() throws InterruptedException {
+        stop();
+        if (thread != null) {
+            thread.join();
+        }
+    }
+
+    // For the painting thread: the newest snapshot, moving on from the one before
+    public RenderSnapshot latest() {
+        return snapshots.latest();
+    }
+
+    @Override
+    public void run() {
+        long nextInput = System.nanoTime();
+        try {
+            while (running) {
+                long now = System.nanoTime();
+                if (now >= nextInput) {
+                    sendInput(now);
+                    int tickRate = newest != null ? newest.globals[WorldState.TICK_RATE] : GameSimulation.DEFAULT_TICK_RATE;
+                    nextInput = Math.max(nextInput + 1_000_000_000L / tickRate, now);
+                }
+                conditions.flush(channel, now);
+                long wake = Math.min(nextInput, conditions.nextDue());
+                long waitMillis = Math.max(1, (wake - System.nanoTime() + 999_999) / 1_000_000);
+                if (selector.select(waitMillis) > 0) {
+                    selector.selectedKeys().clear();
+                    receiveAll();
+                }
+            }
+            out.clear();
+            out.put(CoopServer.LEAVE).flip();
+            channel.write(out);
+        } catch (IOException e) {
+            System.err.println("Co-op connection to " + host + " failed: " + e);
+        } finally {
+            try {
+                selector.close();
+                channel.close();
+            } catch (IOException e) {
+                // Closing anyway
+            }
+        }
+    }
+
+    private void sendInput(long now) throws IOException {
+        out.clear();
+        out.put(CoopServer.INPUT).putInt(newest != null ? newest.tick : -1).put((byte) input.drain()).putLong(now);
+        out.flip();
+        conditions.send(channel, out, null);
+    }
+
+    private void receiveAll() throws IOException {
+        while (true) {
+            in.clear();
+            try {
+                if (channel.receive(in) == null) {
+                    return;
+                }
+            } catch (PortUnreachableException e) {
+                continue; // nothing is listening there yet
+            }
+            in.flip();
+            packets++;
+            bytes += in.remaining();
+            try {
+                decode();
+            } catch (IllegalArgumentException | BufferUnderflowException e) {
+                undecodable++;
+            }
+        }
+    }
+
+    private void decode() {
+        long start = System.nanoTime();
+        if (in.get() != CoopServer.SNAPSHOT) {
+            throw new IllegalArgumentException("Not a snapshot");
+        }
+        int tick = in.getInt();
+        int baseTick = in.getInt();
+        long echo = in.getLong();
+        boolean isPartner = in.get() == 1;
+        int snapshotEvery = in.get();
+        if (snapshotEvery < 1) {
+            throw new IllegalArgumentException("Bad snapshot interval");
+        }
+        if (newest != null && tick <= newest.tick) {
+            late++;
+            return;
+        }
+        WorldState base = null;
+        if (baseTick >= 0) {
+            base = find(baseTick);
+            if (base == null) {
+                missingBase++;
+                return;
+            }
+        }
+        WorldState state = received[nextSlot++ % RECEIVED];
+        while (state == base || state == newest) {
+            state = received[nextSlot++ % RECEIVED];
+        }
+        state.tick = -1; // until it has been decoded whole, which sets it
+        state.readDelta(base, in, tick);
+        long end = System.nanoTime();
+        decodeNanos.record(end - start);
+        if (echo != Long.MIN_VALUE) {
+            roundTripNanos.record(end - echo);
+        }
+        if (newest != null) {
+            lost += Math.max(0, (tick - newest.tick) / snapshotEvery - 1);
+        }
+        partner = isPartner;
+        previous = newest != null ? newest : state;
+        newest = state;
+        long span = (long) (newest.tick - previous.tick) * 1_000_000_000L / newest.globals[WorldState.TICK_RATE];
+        snapshots.publish(previous, newest, end, span);
+        if (listener != null) {
+            listener.received(newest);
+        }
+    }
+
+    private WorldState find(int tick) {
+        for (WorldState state : received) {
+            if (state.tick == tick) {
+                return state;
+            }
+        }
+        return null;
+    }
+
+    public boolean hasSnapshot() {
+        return packets > undecodable + late + missingBase;
+    }
+
+    public boolean isPartner() {
+        return partner;
+    }
+
+    // One line on what has come from the host (exact once the client is closed)
+    public String describe() {
+        return String.format("%d snapshots (%d KB), %d lost, %d late, %d without their base, %d undecodable, "
+                        + "decode p50 %.1f us, p99 %.1f us, round trip p50 %.1f ms",
+                packets, bytes / 1024, lost, late, missingBase, undecodable,
+                decodeNanos.percentile(0.5) / 1e3, decodeNanos.percentile(0.99) / 1e3,
+                roundTripNanos.percentile(0.5) / 1e6);
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getPackets() {
+        return packets;
+    }
+
+    public long getLost() {
+        return lost;
+    }
+}
@@ -0,0 +1,75 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+// The game as a co-op client sees it: instead of a simulation of its own, the panel draws the
+// snapshots a CoopClient receives from the host, and sends the host its keys.
+// Started with -Drobo.join=<host>:<port> (the port defaults to CoopServer.DEFAULT_PORT); the
+// -Drobo.net.* NetworkConditions apply to what it sends.
+public class CoopClientGame extends JPanel implements ActionListener {
+    private static final long serialVersionUID = 1L;
+    private final InputQueue input = new InputQueue();
+    private final GameRenderer renderer = new GameRenderer();
+    private final PerformanceStats stats = new PerformanceStats(RobotSurvivalGame.getRefreshRate());
+    private final CoopClient client;
+    private final String hostName;
+    private final Timer timer;
+
+    public static boolean isRequested() {
+        return System.getProperty("robo.join") != null;
+    }
+
+    // assets may be null, in which case sprites are built as they are first drawn
+    public CoopClientGame(Assets assets) {
+        String join = System.getProperty("robo.join");
+        int colon = join.lastIndexOf(':');
+        String host = colon >= 0 ? join.substring(0, colon) : join;
+        int port = colon >= 0 ? Integer.parseInt(join.substring(colon + 1)) : CoopServer.DEFAULT_PORT;
+        hostName = host + ":" + port;
+        client = new CoopClient(new InetSocketAddress(host, port), input, NetworkConditions.fromSystemProperties());
+        if (assets != null) {
+            renderer.setSprites(assets.getSprites());
+        }
+        renderer.setPerformanceStats(stats);
+        setPreferredSize(new Dimension(GameSimulation.WIDTH, GameSimulation.HEIGHT));
+        setBackground(Color.BLACK);
+        addKeyListener(new KeyboardInput(input, stats));
+        setFocusable(true);
+
+        try {
+            client.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    client.close(); // tells the host we've gone
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "Co-op leave"));
+        } catch (IOException e) {
+            System.err.println("Couldn't join " + hostName + ": " + e);
+        }
+        timer = new Timer(1000 / RobotSurvivalGame.getRefreshRate(), this);
+        timer.start();
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        repaint();
+    }
+
+    @Override
+    public void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        if (!client.hasSnapshot()) {
+            g.setColor(Color.WHITE);
+            g.setFont(new Font("Arial", Font.BOLD, 20));
+            String text = "Connecting to " + hostName + "...";
+            g.drawString(text, (getWidth() - g.getFontMetrics().stringWidth(text)) / 2, getHeight() / 2);
+            return;
+        }
+        RenderSnapshot snapshot = client.latest();
+        renderer.render((Graphics2D) g, snapshot, snapshot.getAlpha(System.nanoTime()), getWidth(), getHeight());
+    }
+}
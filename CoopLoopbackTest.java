@@ -0,0 +1,157 @@
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Plays a co-op game over loopback: a host in this thread, paced in real time, a client steering
+// the partner robot and a second one watching, all through NetworkConditions with the given
+// latency and loss each way. The host is invulnerable, starts with extra enemies and jumps to
+// the boss level halfway, so there are plenty of enemies, bosses and projectiles to send.
+// Every snapshot either client decodes is compared with the host's world at that tick, and the
+// partner has to have moved. Prints what went over the network and how long coding took.
+// Exits with status 1 if a decoded snapshot differs, a client got none or the partner didn't move.
+// Usage: java CoopLoopbackTest [seconds] [latencyMillis] [lossPercent] [snapshotEvery] [extraEnemies]
+public class CoopLoopbackTest {
+    private static final long SEED = 12345;
+
+    public static void main(String[] args) throws Exception {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 20;
+        double latencyMillis = args.length > 1 ? Double.parseDouble(args[1]) : 50;
+        double loss = args.length > 2 ? Double.parseDouble(args[2]) / 100 : 0.05;
+        int snapshotEvery = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+        int extraEnemies = args.length > 4 ? Integer.parseInt(args[4]) : 300;
+
+        GameSimulation sim = new GameSimulation(GameSimulation.DEFAULT_TICK_RATE, SEED);
+        sim.setInvulnerable(true);
+        sim.skipCountdown();
+        sim.addEnemies(extraEnemies);
+        NetworkConditions hostNetwork = new NetworkConditions(latencyMillis, latencyMillis / 5, loss, SEED);
+        CoopServer server = new CoopServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                snapshotEvery, hostNetwork);
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+        System.out.printf("Host on %s, %s each way, a snapshot every %d ticks%n", address, hostNetwork, snapshotEvery);
+
+        // What the clients decoded, by tick, to compare with what the host had
+        Map<Integer, WorldState> partnerSaw = new ConcurrentHashMap<>(), watcherSaw = new ConcurrentHashMap<>();
+        InputQueue partnerKeys = new InputQueue();
+        CoopClient partner = new CoopClient(address, partnerKeys, new NetworkConditions(latencyMillis, latencyMillis / 5, loss, SEED + 1));
+        CoopClient watcher = new CoopClient(address, new InputQueue(), new NetworkConditions(latencyMillis, latencyMillis / 5, loss, SEED + 2));
+        partner.setListener(state -> partnerSaw.put(state.getTick(), copy(state)));
+        watcher.setListener(state -> watcherSaw.put(state.getTick(), copy(state)));
+        partner.start();
+
+        Map<Integer, WorldState> hostHad = new HashMap<>();
+        InputState hostInput = new InputState();
+        long tickNanos = 1_000_000_000L / sim.getTickRate();
+        int ticks = (int) (seconds * sim.getTickRate());
+        int partnerKey = 0;
+        float partnerStartX = Float.NaN, partnerStartY = Float.NaN;
+        boolean partnerMoved = false, watcherStarted = false;
+        long next = System.nanoTime();
+        for (int tick = 1; tick <= ticks; tick++) {
+            if (tick == ticks / 2) {
+                sim.jumpToLevel(GameSimulation.BOSS_LEVEL);
+                sim.addEnemies(extraEnemies);
+            }
+            if (!watcherStarted && server.getClientCount() == 1) {
+                watcher.start(); // second, so it only watches
+                watcherStarted = true;
+            }
+
+            // The partner walks a square, changing direction every half second
+            if (tick % (sim.getTickRate() / 2) == 0) {
+                int[] keys = {InputState.RIGHT, InputState.DOWN, InputState.LEFT, InputState.UP};
+                if (partnerKey != 0) {
+                    partnerKeys.offer(partnerKey, false, System.nanoTime());
+                }
+                partnerKey = keys[(tick / (sim.getTickRate() / 2)) % keys.length];
+                partnerKeys.offer(partnerKey, true, System.nanoTime());
+            }
+            hostInput.clear();
+            int direction = (tick / sim.getTickRate()) % 4;
+            if (direction == 0) hostInput.up = true;
+            if (direction == 1) hostInput.right = true;
+            if (direction == 2) hostInput.down = true;
+            if (direction == 3) hostInput.left = true;
+
+            InputState partnerInput = server.poll(sim);
+            sim.step(hostInput, partnerInput);
+            server.afterTick(sim);
+            hostHad.put(tick, copy(sim, tick));
+            if (sim.isPartnerJoined()) {
+                if (Float.isNaN(partnerStartX)) {
+                    partnerStartX = sim.getPartnerX();
+                    partnerStartY = sim.getPartnerY();
+                }
+                partnerMoved |= sim.getPartnerX() != partnerStartX || sim.getPartnerY() != partnerStartY;
+            }
+
+            next += tickNanos;
+            long sleep = next - System.nanoTime();
+            if (sleep > 0) {
+                Thread.sleep(sleep / 1_000_000, (int) (sleep % 1_000_000));
+            }
+        }
+        partner.close();
+        watcher.close();
+
+        System.out.print(server.describeClients());
+        System.out.println("partner: " + partner.describe());
+        System.out.println("watcher: " + watcher.describe());
+        long fullBytes = 0;
+        for (int tick = snapshotEvery; tick <= ticks; tick += snapshotEvery) {
+            fullBytes += fullSize(hostHad.get(tick));
+        }
+        System.out.printf("partner received %.1f KB/s; full snapshots would have been %.1f KB/s%n",
+                partner.getBytes() / 1024.0 / seconds, fullBytes / 1024.0 / seconds);
+        boolean ok = compare("partner", partnerSaw, hostHad) & compare("watcher", watcherSaw, hostHad);
+        if (!partner.isPartner() || watcher.isPartner()) {
+            System.out.println("The clients' roles are wrong");
+            ok = false;
+        }
+        if (!partnerMoved) {
+            System.out.println("The partner never moved");
+            ok = false;
+        }
+        server.close();
+        System.out.println(ok ? "OK" : "FAILED");
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static WorldState copy(WorldState state) {
+        WorldState copy = new WorldState();
+        copy.copyFrom(state);
+        return copy;
+    }
+
+    private static WorldState copy(GameSimulation sim, int tick) {
+        WorldState state = new WorldState();
+        state.capture(sim, tick);
+        return state;
+    }
+
+    private static int fullSize(WorldState state) {
+        ByteBuffer out = ByteBuffer.allocate(CoopServer.MAX_DATAGRAM);
+        state.writeDelta(null, out);
+        return CoopServer.SNAPSHOT_HEADER + out.position();
+    }
+
+    private static boolean compare(String name, Map<Integer, WorldState> saw, Map<Integer, WorldState> had) {
+        if (saw.isEmpty()) {
+            System.out.println(name + " decoded no snapshots");
+            return false;
+        }
+        for (Map.Entry<Integer, WorldState> entry : saw.entrySet()) {
+            if (!entry.getValue().sameAs(had.get(entry.getKey()))) {
+                System.out.println(name + "'s snapshot of tick " + entry.getKey() + " differs from the host's");
+                return false;
+            }
+        }
+        System.out.println(name + ": all " + saw.size() + " snapshots decoded match the host");
+        return true;
+    }
+}
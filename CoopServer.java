@@ -0,0 +1,268 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+// The host's side of networked co-op. The host's GameSimulation stays the only one: the first
+// client to connect steers the partner robot (see GameSimulation.setPartnerJoined), and every
+// client, including any later ones, which only watch, gets the world as WorldState snapshots.
+// Everything goes over one non-blocking UDP channel, polled by the simulation thread between
+// ticks (see GameLoop.setCoopServer), so nothing here ever waits or needs a lock.
+// Packets, big-endian:
+//   client to host  INPUT     type, newest snapshot tick it has (-1 for none), InputState bits,
+//                             its System.nanoTime when sent (for the round trip)
+//                   LEAVE     type
+//   host to client  SNAPSHOT  type, tick, tick of the base it is a delta against (-1 for a full
+//                             one), the newest send time heard from the client, the client's role
+//                             (1 partner, 0 watching), ticks between snapshots, WorldState delta
+// A snapshot goes out every snapshotEvery ticks, as a delta against the newest one the client
+// says it has, if that is still in the history, and in full otherwise. Nothing is resent: a lost
+// snapshot just means the next delta is against an older base, which the client still has.
+// The partner's keys are its newest packet's, plus any pressed in an older one since the last
+// tick, so a short tap isn't lost when two packets arrive between ticks; a client that has been
+// silent for TIMEOUT_NANOS is dropped.
+// Snapshots have to fit in a datagram, so swarm mode (tens of thousands of enemies) isn't served.
+public class CoopServer implements Closeable {
+    public static final int DEFAULT_PORT = 27960;
+    static final byte INPUT = 1, LEAVE = 2, SNAPSHOT = 3;
+    static final int MAX_DATAGRAM = 65507;
+    static final int SNAPSHOT_HEADER = 1 + 4 + 4 + 8 + 1 + 1;
+    private static final int HISTORY = 32; // snapshots kept as delta bases
+    private static final long TIMEOUT_NANOS = 5_000_000_000L;
+
+    private final DatagramChannel channel;
+    private final NetworkConditions conditions;
+    private final int snapshotEvery;
+    private final ByteBuffer in = ByteBuffer.allocateDirect(MAX_DATAGRAM);
+    private final ByteBuffer out = ByteBuffer.allocateDirect(MAX_DATAGRAM);
+    private final WorldState[] history = new WorldState[HISTORY];
+    private final int[] historyTicks = new int[HISTORY];
+    private final List<Client> clients = new ArrayList<>();
+    private final InputState partnerInput = new InputState();
+    private int tick;
+    private int historyCount;
+
+    static class Client {
+        final SocketAddress address;
+        boolean partner;
+        int acked = -1;
+        int held, latched;
+        long lastSendTime = Long.MIN_VALUE, lastHeard;
+
+        // Traffic to this client
+        long bytes, packets, fullBytes, fullCount, deltaBytes, deltaCount, oversized;
+        final Histogram encodeNanos = new Histogram();
+        final long since = System.nanoTime();
+
+        Client(SocketAddress address) {
+            this.address = address;
+        }
+    }
+
+    // Listens on the port (0 for any free one) of every interface
+    public CoopServer(int port, int snapshotEvery, NetworkConditions conditions) throws IOException {
+        this(new InetSocketAddress(port), snapshotEvery, conditions);
+    }
+
+    public CoopServer(InetSocketAddress address, int snapshotEvery, NetworkConditions conditions) throws IOException {
+        if (snapshotEvery < 1 || snapshotEvery > 127) {
+            throw new IllegalArgumentException("Ticks between snapshots must be 1 to 127: " + snapshotEvery);
+        }
+        this.snapshotEvery = snapshotEvery;
+        this.conditions = conditions;
+        for (int i = 0; i < HISTORY; i++) {
+            history[i] = new WorldState();
+            historyTicks[i] = -1;
+        }
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.bind(address);
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+    }
+
+    // Before a tick: reads whatever clients have sent and returns the partner's input for the
+    // tick, or null if no partner is connected
+    public InputState poll(GameSimulation sim) throws IOException {
+        long now = System.nanoTime();
+        conditions.flush(channel, now);
+        SocketAddress from;
+        while ((from = receive()) != null) {
+            try {
+                handle(sim, from, now);
+            } catch (BufferUnderflowException e) {
+                // A truncated packet; ignore it
+            }
+        }
+        for (int i = clients.size() - 1; i >= 0; i--) {
+            if (now - clients.get(i).lastHeard > TIMEOUT_NANOS) {
+                remove(sim, i);
+            }
+        }
+
+        Client partner = getPartner();
+        if (partner == null) {
+            return null;
+        }
+        partnerInput.setBits(partner.held | partner.latched);
+        partner.latched = 0;
+        return partnerInput;
+    }
+
+    private SocketAddress receive() throws IOException {
+        in.clear();
+        SocketAddress from = channel.receive(in);
+        in.flip();
+        return from;
+    }
+
+    private void handle(GameSimulation sim, SocketAddress from, long now) {
+        int index = indexOf(from);
+        byte type = in.get();
+        if (type == LEAVE) {
+            if (index >= 0) {
+                remove(sim, index);
+            }
+            return;
+        }
+        if (type != INPUT) {
+            return;
+        }
+        int ack = in.getInt();
+        int bits = in.get();
+        long sendTime = in.getLong();
+        Client client;
+        if (index >= 0) {
+            client = clients.get(index);
+        } else {
+            client = new Client(from);
+            client.partner = getPartner() == null;
+            clients.add(client);
+            if (client.partner) {
+                sim.setPartnerJoined(true);
+            }
+        }
+        client.lastHeard = now;
+        if (ack > client.acked && ack <= tick) {
+            client.acked = ack;
+        }
+        client.latched |= bits;
+        if (sendTime > client.lastSendTime) { // UDP can reorder
+            client.lastSendTime = sendTime;
+            client.held = bits;
+        }
+    }
+
+    private int indexOf(SocketAddress address) {
+        for (int i = 0; i < clients.size(); i++) {
+            if (clients.get(i).address.equals(address)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Client getPartner() {
+        for (Client client : clients) {
+            if (client.partner) {
+                return client;
+            }
+        }
+        return null;
+    }
+
+    private void remove(GameSimulation sim, int index) {
+        if (clients.remove(index).partner) {
+            sim.setPartnerJoined(false);
+        }
+    }
+
+    // After a tick: sends the clients a snapshot if one is due
+    public void afterTick(GameSimulation sim) throws IOException {
+        tick++;
+        if (tick % snapshotEvery != 0 || clients.isEmpty()) {
+            return;
+        }
+        int slot = historyCount++ % HISTORY;
+        WorldState current = history[slot];
+        current.capture(sim, tick);
+        historyTicks[slot] = tick;
+        for (Client client : clients) {
+            send(client, current);
+        }
+    }
+
+    private void send(Client client, WorldState current) throws IOException {
+        long start = System.nanoTime();
+        WorldState base = find(client.acked);
+        out.clear();
+        try {
+            out.put(SNAPSHOT).putInt(current.tick).putInt(base != null ? base.tick : -1)
+                    .putLong(client.lastSendTime).put((byte) (client.partner ? 1 : 0)).put((byte) snapshotEvery);
+            current.writeDelta(base, out);
+        } catch (BufferOverflowException e) {
+            client.oversized++;
+            return;
+        }
+        out.flip();
+        int size = out.remaining();
+        client.encodeNanos.record(System.nanoTime() - start);
+        conditions.send(channel, out, client.address);
+        client.bytes += size;
+        client.packets++;
+        if (base != null) {
+            client.deltaBytes += size;
+            client.deltaCount++;
+        } else {
+            client.fullBytes += size;
+            client.fullCount++;
+        }
+    }
+
+    // The kept snapshot for a tick, or null if it has gone (or there never was one)
+    private WorldState find(int tick) {
+        if (tick < 0) {
+            return null;
+        }
+        for (int i = 0; i < HISTORY; i++) {
+            if (historyTicks[i] == tick) {
+                return history[i];
+            }
+        }
+        return null;
+    }
+
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    // One line per client: its address, role and what it has been sent
+    public String describeClients() {
+        StringBuilder text = new StringBuilder();
+        long now = System.nanoTime();
+        for (Client client : clients) {
+            double seconds = Math.max(1e-9, (now - client.since) / 1e9);
+            text.append(String.format("%s (%s): %d snapshots, %.1f KB/s, full %d B, delta %d B average, "
+                            + "encode p50 %.1f us, p99 %.1f us, %d too big to send%n",
+                    client.address, client.partner ? "partner" : "watching", client.packets,
+                    client.bytes / 1024.0 / seconds, client.fullCount > 0 ? client.fullBytes / client.fullCount : 0,
+                    client.deltaCount > 0 ? client.deltaBytes / client.deltaCount : 0,
+                    client.encodeNanos.percentile(0.5) / 1e3, client.encodeNanos.percentile(0.99) / 1e3,
+                    client.oversized));
+        }
+        return text.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
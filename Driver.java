@@ -1,9 +1,12 @@
+import javax.swing.SwingUtilities;
+
 public class Driver
 {
     public static void main(String[] args)
     {
+        // Swing must only be touched on the event dispatch thread
         Image opening = new Image();
-        opening.showOpeningScreen();
+        SwingUtilities.invokeLater(opening::showOpeningScreen);
     }
 }
 
@@ -0,0 +1,184 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Moves every entity of a store towards a target, straight or along a FlowField, and tests it
+// against the player's hitbox.
+// Small stores are done serially on the calling thread. From a threshold on, the store is cut
+// into fixed-size chunks that run on a fork-join pool.
+// An entity's move only reads and writes its own row, and the chunks' hits are combined by
+// taking the highest index, so the outcome is bit-for-bit the same whatever the chunk size,
+// thread count or scheduling.
+// Tuned with -Drobo.parallel.chunk, -Drobo.parallel.threshold and -Drobo.parallel.threads.
+// Each range is done by a MoveKernel, the vector one when available.
+public class EntityMover {
+    public static final int DEFAULT_CHUNK_SIZE = 2048;
+    public static final int DEFAULT_THRESHOLD = 8192;
+
+    private final int chunkSize;
+    private final int threshold;
+    private final int threads;
+    private final MoveKernel kernel;
+    private ForkJoinPool pool; // created the first time a store is big enough
+
+    // Chunk tasks are kept and reinitialized so a parallel update doesn't allocate
+    private Chunk[] chunks = new Chunk[0];
+    private final Batch batch = new Batch();
+    private int chunkCount;
+
+    // Arguments of the update in progress, published to the workers by the fork
+    private EntityStore store;
+    private FlowField field;
+    private float targetX, targetY, tickSeconds;
+    private float minX, minY, maxX, maxY;
+
+    public EntityMover(int chunkSize, int threshold, int threads) {
+        this(chunkSize, threshold, threads, MoveKernel.fromSystemProperties());
+    }
+
+    public EntityMover(int chunkSize, int threshold, int threads, MoveKernel kernel) {
+        if (chunkSize < 1 || threads < 1) {
+            throw new IllegalArgumentException("Chunk size and threads must be at least 1");
+        }
+        this.chunkSize = chunkSize;
+        this.threshold = threshold;
+        this.threads = threads;
+        this.kernel = kernel;
+    }
+
+    public static EntityMover fromSystemProperties() {
+        return new EntityMover(
+                Integer.getInteger("robo.parallel.chunk", DEFAULT_CHUNK_SIZE),
+                Integer.getInteger("robo.parallel.threshold", DEFAULT_THRESHOLD),
+                Integer.getInteger("robo.parallel.threads", Runtime.getRuntime().availableProcessors()));
+    }
+
+    // Always serial, for comparing against the parallel path
+    public static EntityMover serial() {
+        return serial(MoveKernel.fromSystemProperties());
+    }
+
+    public static EntityMover serial(MoveKernel kernel) {
+        return new EntityMover(Integer.MAX_VALUE, Integer.MAX_VALUE, 1, kernel);
+    }
+
+    public MoveKernel getKernel() {
+        return kernel;
+    }
+
+    public boolean isParallel(int count) {
+        return threads > 1 && count >= threshold && count > chunkSize;
+    }
+
+    // Moves every entity towards (targetX, targetY), then returns the highest index whose box
+    // overlaps the box minX..maxX, minY..maxY after moving, or -1 if none does
+    public int moveAndCollide(EntityStore store, float targetX, float targetY, float tickSeconds,
+                              float minX, float minY, float maxX, float maxY) {
+        return moveAndCollide(store, null, targetX, targetY, tickSeconds, minX, minY, maxX, maxY);
+    }
+
+    // The same, moving along a field already built towards the target (straight if it is null)
+    public int moveAndCollide(EntityStore store, FlowField field, float targetX, float targetY, float tickSeconds,
+                              float minX, float minY, float maxX, float maxY) {
+        int count = store.count();
+        if (!isParallel(count)) {
+            return kernel.update(store, field, 0, count, targetX, targetY, tickSeconds, minX, minY, maxX, maxY);
+        }
+
+        this.store = store;
+        this.field = field;
+        this.targetX = targetX;
+        this.targetY = targetY;
+        this.tickSeconds = tickSeconds;
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+
+        chunkCount = (count + chunkSize - 1) / chunkSize;
+        if (chunks.length < chunkCount) {
+            Chunk[] grown = new Chunk[Math.max(chunkCount, chunks.length * 2)];
+            System.arraycopy(chunks, 0, grown, 0, chunks.length);
+            for (int c = chunks.length; c < grown.length; c++) {
+                grown[c] = new Chunk();
+            }
+            chunks = grown;
+        }
+        for (int c = 0; c < chunkCount; c++) {
+            chunks[c].reinitialize();
+            chunks[c].from = c * chunkSize;
+            chunks[c].to = Math.min(count, (c + 1) * chunkSize);
+        }
+        batch.reinitialize();
+        if (pool == null) {
+            pool = new ForkJoinPool(threads);
+        }
+        pool.invoke(batch);
+        this.store = null;
+        this.field = null;
+
+        int hit = -1;
+        for (int c = 0; c < chunkCount; c++) {
+            hit = Math.max(hit, chunks[c].hit);
+        }
+        return hit;
+    }
+
+    // Just the hit test, for a second box (the co-op partner's): the highest index overlapping it, or -1
+    public static int collide(EntityStore store, float minX, float minY, float maxX, float maxY) {
+        for (int i = store.count() - 1; i >= 0; i--) {
+            float x = store.x[i], y = store.y[i];
+            int size = store.size[i];
+            if (x < maxX && x + size > minX && y < maxY && y + size > minY) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Moves entity i of a store straight towards the target at its own speed
+    static void moveTowards(EntityStore store, int i, float targetX, float targetY, float tickSeconds) {
+        // Calculate direction vector
+        float dx = targetX - store.x[i];
+        float dy = targetY - store.y[i];
+
+        // Normalize the vector
+        float length = (float) Math.sqrt(dx*dx + dy*dy);
+        if (length > 0) {
+            dx /= length;
+            dy /= length;
+        }
+
+        // Move towards player
+        store.vx[i] = dx * store.speed[i];
+        store.vy[i] = dy * store.speed[i];
+        store.x[i] += store.vx[i] * tickSeconds;
+        store.y[i] += store.vy[i] * tickSeconds;
+    }
+
+    // Forks every chunk but the first, runs the first itself, then waits for the rest
+    private class Batch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+            for (int c = chunkCount - 1; c > 0; c--) {
+                chunks[c].fork();
+            }
+            chunks[0].compute();
+            for (int c = 1; c < chunkCount; c++) {
+                chunks[c].join();
+            }
+        }
+    }
+
+    private class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        int from, to;
+        int hit;
+
+        @Override
+        protected void compute() {
+            hit = kernel.update(store, field, from, to, targetX, targetY, tickSeconds, minX, minY, maxX, maxY);
+        }
+    }
+}
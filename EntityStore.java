@@ -0,0 +1,216 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Structure-of-arrays storage for one kind of entity (enemies, bosses or projectiles).
+// Live entities are packed densely in indices 0..count()-1 so loops walk plain primitive
+// arrays. Removing swaps the last entity into the hole, so removal is O(1) but changes the
+// order; code that needs to refer to an entity across ticks keeps its handle instead.
+public class EntityStore {
+    // A handle packs a slot number (low 24 bits) with that slot's generation (high 8 bits),
+    // so a handle to a removed entity stops resolving even after its slot is reused
+    private static final int SLOT_BITS = 24;
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+
+    // Dense columns
+    float[] x, y;
+    float[] prevX, prevY;
+    float[] vx, vy; // velocity over the last tick, pixels per second
+    float[] speed;  // pixels per second
+    int[] size;
+    int[] type;
+    private int[] handles; // dense index -> handle
+
+    // Handle slot -> dense index, or -1 when the slot is free
+    private int[] indexOfSlot;
+    private int[] generationOfSlot;
+    private int[] freeSlots;
+    private int freeCount;
+    private int slotCount;
+
+    private int count;
+
+    public EntityStore(int capacity) {
+        capacity = Math.max(capacity, 16);
+        x = new float[capacity];
+        y = new float[capacity];
+        prevX = new float[capacity];
+        prevY = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        speed = new float[capacity];
+        size = new int[capacity];
+        type = new int[capacity];
+        handles = new int[capacity];
+        indexOfSlot = new int[capacity];
+        generationOfSlot = new int[capacity];
+        freeSlots = new int[capacity];
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    // Adds an entity standing still at (x, y) and returns its dense index
+    public int add(float x, float y, int size, float speed, int type) {
+        if (count == this.x.length) {
+            grow();
+        }
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : slotCount++;
+        int index = count++;
+
+        this.x[index] = x;
+        this.y[index] = y;
+        prevX[index] = x;
+        prevY[index] = y;
+        vx[index] = 0;
+        vy[index] = 0;
+        this.speed[index] = speed;
+        this.size[index] = size;
+        this.type[index] = type;
+
+        indexOfSlot[slot] = index;
+        handles[index] = (generationOfSlot[slot] << SLOT_BITS) | slot;
+        return index;
+    }
+
+    // Swap-removes the entity at a dense index
+    public void remove(int index) {
+        int slot = handles[index] & SLOT_MASK;
+        indexOfSlot[slot] = -1;
+        generationOfSlot[slot] = (generationOfSlot[slot] + 1) & 0xFF;
+        freeSlots[freeCount++] = slot;
+
+        int last = --count;
+        if (index != last) {
+            x[index] = x[last];
+            y[index] = y[last];
+            prevX[index] = prevX[last];
+            prevY[index] = prevY[last];
+            vx[index] = vx[last];
+            vy[index] = vy[last];
+            speed[index] = speed[last];
+            size[index] = size[last];
+            type[index] = type[last];
+            handles[index] = handles[last];
+            indexOfSlot[handles[index] & SLOT_MASK] = index;
+        }
+    }
+
+    public void clear() {
+        while (count > 0) {
+            remove(count - 1);
+        }
+    }
+
+    // Stable id for the entity currently at this dense index
+    public int handle(int index) {
+        return handles[index];
+    }
+
+    // The slot part of a handle: no two live entities share one
+    public static int slotOf(int handle) {
+        return handle & SLOT_MASK;
+    }
+
+    // Dense index for a handle, or -1 if that entity has been removed
+    public int indexOf(int handle) {
+        int slot = handle & SLOT_MASK;
+        if (slot >= slotCount || generationOfSlot[slot] != (handle >>> SLOT_BITS)) {
+            return -1;
+        }
+        return indexOfSlot[slot];
+    }
+
+    // Copies current positions into the previous-position columns
+    public void savePreviousPositions() {
+        System.arraycopy(x, 0, prevX, 0, count);
+        System.arraycopy(y, 0, prevY, 0, count);
+    }
+
+    // Makes this store a copy of the positions, sizes and types of another (for render snapshots).
+    // Handles aren't copied, so the copy is only for reading.
+    public void copyForRendering(EntityStore from) {
+        while (x.length < from.count) {
+            grow();
+        }
+        count = from.count;
+        System.arraycopy(from.x, 0, x, 0, count);
+        System.arraycopy(from.y, 0, y, 0, count);
+        System.arraycopy(from.prevX, 0, prevX, 0, count);
+        System.arraycopy(from.prevY, 0, prevY, 0, count);
+        System.arraycopy(from.size, 0, size, 0, count);
+        System.arraycopy(from.type, 0, type, 0, count);
+    }
+
+    // Bytes writeState needs: the live entities plus the slot bookkeeping, so handles held
+    // across ticks resolve the same after a restore
+    public int stateSize() {
+        return 12 + count * 36 + slotCount + freeCount * 4;
+    }
+
+    // Saves everything to a replay keyframe. Sizes and types are small, so they go in shorts.
+    public void writeState(ByteBuffer out) {
+        out.putInt(count).putInt(slotCount).putInt(freeCount);
+        for (int i = 0; i < count; i++) {
+            out.putFloat(x[i]).putFloat(y[i]).putFloat(prevX[i]).putFloat(prevY[i]);
+            out.putFloat(vx[i]).putFloat(vy[i]).putFloat(speed[i]);
+            out.putShort((short) size[i]).putShort((short) type[i]).putInt(handles[i]);
+        }
+        for (int slot = 0; slot < slotCount; slot++) {
+            out.put((byte) generationOfSlot[slot]);
+        }
+        for (int i = 0; i < freeCount; i++) {
+            out.putInt(freeSlots[i]);
+        }
+    }
+
+    public void readState(ByteBuffer in) {
+        count = in.getInt();
+        slotCount = in.getInt();
+        freeCount = in.getInt();
+        while (x.length < Math.max(count, slotCount)) {
+            grow();
+        }
+        Arrays.fill(indexOfSlot, 0, slotCount, -1);
+        for (int i = 0; i < count; i++) {
+            x[i] = in.getFloat();
+            y[i] = in.getFloat();
+            prevX[i] = in.getFloat();
+            prevY[i] = in.getFloat();
+            vx[i] = in.getFloat();
+            vy[i] = in.getFloat();
+            speed[i] = in.getFloat();
+            size[i] = in.getShort();
+            type[i] = in.getShort();
+            handles[i] = in.getInt();
+            indexOfSlot[handles[i] & SLOT_MASK] = i;
+        }
+        for (int slot = 0; slot < slotCount; slot++) {
+            generationOfSlot[slot] = in.get() & 0xFF;
+        }
+        for (int i = 0; i < freeCount; i++) {
+            freeSlots[i] = in.getInt();
+        }
+    }
+
+    private void grow() {
+        int capacity = x.length * 2;
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        prevX = Arrays.copyOf(prevX, capacity);
+        prevY = Arrays.copyOf(prevY, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+        size = Arrays.copyOf(size, capacity);
+        type = Arrays.copyOf(type, capacity);
+        handles = Arrays.copyOf(handles, capacity);
+        indexOfSlot = Arrays.copyOf(indexOfSlot, capacity);
+        generationOfSlot = Arrays.copyOf(generationOfSlot, capacity);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+    }
+}
@@ -0,0 +1,276 @@
+import java.util.Arrays;
+
+// Pursuit shared by every enemy and boss. Once per tick a distance field towards the target
+// (the player) is built over a coarse grid of the world, and each cell gets the unit direction
+// down its slope. Moving an entity is then looking up its cell's direction, two array reads
+// instead of its own square root, however many entities share the field. Entities already in
+// the target's cell steer straight at it.
+// There can be a second target (the co-op partner): the field then leads to whichever is nearer.
+// Distances are a chamfer transform: 5 per straight step, 7 per diagonal, within 6% of the
+// straight-line distance. Without walls a cell's direction only depends on where it is relative
+// to the target's cell, so those are worked out once, for every offset, and building is free.
+// Cells can be blocked: the field then flows round them, found by forward and backward raster
+// sweeps until nothing changes, and every cell's direction is worked out on each build. Two
+// targets are swept the same way.
+// Like the direct steering, an entity's top-left corner pursues the target's top-left corner.
+public class FlowField {
+    public static final int DEFAULT_CELL_SIZE = 20;
+    private static final int STRAIGHT = 5, DIAGONAL = 7;
+    private static final int UNREACHABLE = Integer.MAX_VALUE / 2;
+
+    // Neighbouring distances differ by at most a diagonal step, so every slope is a pair of small
+    // integers and its unit vector comes from this table instead of a square root per cell
+    private static final int MAX_SLOPE = 2 * DIAGONAL, SLOPES = 2 * MAX_SLOPE + 1;
+    private static final float[] UNIT_X = new float[SLOPES * SLOPES], UNIT_Y = new float[SLOPES * SLOPES];
+
+    static {
+        for (int dy = -MAX_SLOPE; dy <= MAX_SLOPE; dy++) {
+            for (int dx = -MAX_SLOPE; dx <= MAX_SLOPE; dx++) {
+                float length = (float) Math.sqrt(dx * dx + dy * dy);
+                int slope = (dy + MAX_SLOPE) * SLOPES + dx + MAX_SLOPE;
+                UNIT_X[slope] = length > 0 ? dx / length : 0;
+                UNIT_Y[slope] = length > 0 ? dy / length : 0;
+            }
+        }
+    }
+
+    // Package-private, like the rest of the lookup below, for VectorMoveKernel
+    final float cellsPerPixel;
+    final int columns, rows;
+
+    // Without walls: direction by offset from the target's cell, at (row offset + rows - 1) *
+    // offsetStride + column offset + columns - 1
+    private final int offsetStride;
+    private final float[] offsetX, offsetY;
+
+    // With walls: per cell, on a grid with a border of blocked cells all round so that no lookup
+    // needs a bounds check
+    private final int stride;
+    private final int[] distance;
+    private final boolean[] blocked;
+    private int blockedCount;
+    private final float[] directionX, directionY;
+
+    private float targetX, targetY;
+    int targetColumn, targetRow;
+    float secondX, secondY;
+    int secondColumn = -1, secondRow = -1; // -1 without a second target
+
+    // Where this build's directions are read from: cell (column, row) is at
+    // lookupBase + row * lookupStride + column of lookupX and lookupY
+    float[] lookupX, lookupY;
+    int lookupStride, lookupBase;
+
+    public FlowField(int width, int height, int cellSize) {
+        this.cellsPerPixel = 1.0f / cellSize;
+        this.columns = (width + cellSize - 1) / cellSize;
+        this.rows = (height + cellSize - 1) / cellSize;
+
+        offsetStride = 2 * columns - 1;
+        offsetX = new float[offsetStride * (2 * rows - 1)];
+        offsetY = new float[offsetX.length];
+        for (int dy = 1 - rows; dy < rows; dy++) {
+            for (int dx = 1 - columns; dx < columns; dx++) {
+                int here = openDistance(dx, dy);
+                int slopeX = openDistance(dx - 1, dy) - openDistance(dx + 1, dy);
+                int slopeY = openDistance(dx, dy - 1) - openDistance(dx, dy + 1);
+                int slope = here == 0 ? SLOPES * SLOPES / 2 : (slopeY + MAX_SLOPE) * SLOPES + slopeX + MAX_SLOPE;
+                offsetX[(dy + rows - 1) * offsetStride + dx + columns - 1] = UNIT_X[slope];
+                offsetY[(dy + rows - 1) * offsetStride + dx + columns - 1] = UNIT_Y[slope];
+            }
+        }
+
+        stride = columns + 2;
+        int cells = stride * (rows + 2);
+        distance = new int[cells];
+        blocked = new boolean[cells];
+        directionX = new float[cells];
+        directionY = new float[cells];
+        Arrays.fill(distance, UNREACHABLE);
+        for (int column = -1; column <= columns; column++) {
+            blocked[index(column, -1)] = true;
+            blocked[index(column, rows)] = true;
+        }
+        for (int row = -1; row <= rows; row++) {
+            blocked[index(-1, row)] = true;
+            blocked[index(columns, row)] = true;
+        }
+    }
+
+    // What the sweeps find without walls: diagonal steps, then straight ones
+    private static int openDistance(int dx, int dy) {
+        dx = Math.abs(dx);
+        dy = Math.abs(dy);
+        return STRAIGHT * Math.max(dx, dy) + (DIAGONAL - STRAIGHT) * Math.min(dx, dy);
+    }
+
+    private int index(int column, int row) {
+        return (row + 1) * stride + column + 1;
+    }
+
+    // Marks a cell as impassable (takes effect from the next build)
+    public void setBlocked(int column, int row, boolean isBlocked) {
+        int cell = index(column, row);
+        if (blocked[cell] != isBlocked) {
+            blocked[cell] = isBlocked;
+            blockedCount += isBlocked ? 1 : -1;
+        }
+    }
+
+    // Points the field at (x, y); no allocation
+    public void build(float x, float y) {
+        setTarget(x, y);
+        secondColumn = secondRow = -1;
+        if (blockedCount == 0) {
+            setLookup(offsetX, offsetY, offsetStride, (rows - 1 - targetRow) * offsetStride + columns - 1 - targetColumn);
+            return;
+        }
+        sweep();
+    }
+
+    // Points the field at the nearer of (x, y) and (secondX, secondY)
+    public void build(float x, float y, float secondX, float secondY) {
+        setTarget(x, y);
+        this.secondX = secondX;
+        this.secondY = secondY;
+        secondColumn = column(secondX);
+        secondRow = row(secondY);
+        sweep();
+    }
+
+    private void setTarget(float x, float y) {
+        targetX = x;
+        targetY = y;
+        targetColumn = column(x);
+        targetRow = row(y);
+    }
+
+    // Distances from the target cells by sweeping, then every cell's direction
+    private void sweep() {
+        setLookup(directionX, directionY, stride, index(0, 0));
+        for (int row = 0; row < rows; row++) {
+            Arrays.fill(distance, index(0, row), index(columns, row), UNREACHABLE);
+        }
+        int targetCell = index(targetColumn, targetRow);
+        if (!blocked[targetCell]) {
+            distance[targetCell] = 0;
+        }
+        if (secondColumn >= 0 && !blocked[index(secondColumn, secondRow)]) {
+            distance[index(secondColumn, secondRow)] = 0;
+        }
+        boolean changed;
+        do {
+            changed = sweepForward();
+            changed |= sweepBackward();
+        } while (changed);
+        for (int row = 0; row < rows; row++) {
+            for (int cell = index(0, row), end = cell + columns; cell < end; cell++) {
+                setDirection(cell);
+            }
+        }
+    }
+
+    private void setLookup(float[] x, float[] y, int stride, int base) {
+        lookupX = x;
+        lookupY = y;
+        lookupStride = stride;
+        lookupBase = base;
+    }
+
+    // Lowers each cell's distance to a neighbour's above or to the left, plus the step
+    private boolean sweepForward() {
+        boolean changed = false;
+        for (int row = 0; row < rows; row++) {
+            for (int cell = index(0, row), end = cell + columns; cell < end; cell++) {
+                if (blocked[cell]) {
+                    continue;
+                }
+                int d = Math.min(distance[cell - 1] + STRAIGHT, distance[cell - stride] + STRAIGHT);
+                d = Math.min(d, Math.min(distance[cell - stride - 1], distance[cell - stride + 1]) + DIAGONAL);
+                if (d < distance[cell]) {
+                    distance[cell] = d;
+                    changed = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    // The same from below and to the right
+    private boolean sweepBackward() {
+        boolean changed = false;
+        for (int row = rows - 1; row >= 0; row--) {
+            for (int cell = index(columns - 1, row), end = cell - columns; cell > end; cell--) {
+                if (blocked[cell]) {
+                    continue;
+                }
+                int d = Math.min(distance[cell + 1] + STRAIGHT, distance[cell + stride] + STRAIGHT);
+                d = Math.min(d, Math.min(distance[cell + stride - 1], distance[cell + stride + 1]) + DIAGONAL);
+                if (d < distance[cell]) {
+                    distance[cell] = d;
+                    changed = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    // Downhill direction from the differences to the four neighbours (a wall or unreachable
+    // neighbour counts as level); where that is flat, towards the lowest of all eight
+    private void setDirection(int cell) {
+        int here = distance[cell];
+        int dx = 0, dy = 0;
+        if (here > 0 && here < UNREACHABLE) {
+            dx = level(here, cell - 1) - level(here, cell + 1);
+            dy = level(here, cell - stride) - level(here, cell + stride);
+            if (dx == 0 && dy == 0) {
+                int lowest = here;
+                for (int ny = -1; ny <= 1; ny++) {
+                    for (int nx = -1; nx <= 1; nx++) {
+                        int value = level(here, cell + ny * stride + nx);
+                        if (value < lowest) {
+                            lowest = value;
+                            dx = nx;
+                            dy = ny;
+                        }
+                    }
+                }
+            }
+        }
+        int slope = (dy + MAX_SLOPE) * SLOPES + dx + MAX_SLOPE;
+        directionX[cell] = UNIT_X[slope];
+        directionY[cell] = UNIT_Y[slope];
+    }
+
+    private int level(int here, int neighbour) {
+        int value = distance[neighbour];
+        return value >= UNREACHABLE ? here : value;
+    }
+
+    // Positions outside the world are clamped to the border cells
+    int column(float x) {
+        return Math.max(0, Math.min((int) (x * cellsPerPixel), columns - 1));
+    }
+
+    int row(float y) {
+        return Math.max(0, Math.min((int) (y * cellsPerPixel), rows - 1));
+    }
+
+    // Moves entity i of a store along the field at its own speed
+    void move(EntityStore store, int i, float tickSeconds) {
+        int column = column(store.x[i]), row = row(store.y[i]);
+        if (column == targetColumn && row == targetRow) {
+            EntityMover.moveTowards(store, i, targetX, targetY, tickSeconds);
+            return;
+        }
+        if (column == secondColumn && row == secondRow) {
+            EntityMover.moveTowards(store, i, secondX, secondY, tickSeconds);
+            return;
+        }
+        int cell = lookupBase + row * lookupStride + column;
+        store.vx[i] = lookupX[cell] * store.speed[i];
+        store.vy[i] = lookupY[cell] * store.speed[i];
+        store.x[i] += store.vx[i] * tickSeconds;
+        store.y[i] += store.vy[i] * tickSeconds;
+    }
+}
@@ -0,0 +1,65 @@
+// Finds the highest level, and entity count, at which the game still held its target frame rate.
+// Frames are grouped into windows of one second's worth at the target rate. A window holds the
+// rate if its frames took no longer than the frame budget on average (with 5% slack).
+// Fed with real frame intervals by GameRenderer.render, or with measured frame costs by SwarmLoadTest.
+public class FrameRateTracker {
+    private static final double SLACK = 0.95;
+
+    private final int targetFps;
+    private long windowNanos;
+    private int windowFrames;
+    private int windowLevel, windowEntities;
+    private double lastWindowFps;
+    private int missedWindows; // in a row
+
+    private int bestLevel, bestEntities;
+
+    public FrameRateTracker(int targetFps) {
+        this.targetFps = targetFps;
+    }
+
+    public void frame(long frameNanos, GameSimulation sim) {
+        frame(frameNanos, sim.getCurrentLevel(), getEntityCount(sim));
+    }
+
+    public void frame(long frameNanos, int level, int entities) {
+        windowNanos += frameNanos;
+        windowFrames++;
+        windowLevel = Math.max(windowLevel, level);
+        windowEntities = Math.max(windowEntities, entities);
+        if (windowFrames < targetFps) {
+            return;
+        }
+
+        lastWindowFps = windowFrames * 1e9 / windowNanos;
+        if (lastWindowFps >= targetFps * SLACK) {
+            missedWindows = 0;
+            bestLevel = Math.max(bestLevel, windowLevel);
+            bestEntities = Math.max(bestEntities, windowEntities);
+        } else {
+            missedWindows++;
+        }
+        windowNanos = 0;
+        windowFrames = 0;
+        windowLevel = 0;
+        windowEntities = 0;
+    }
+
+    public static int getEntityCount(GameSimulation sim) {
+        return sim.getEnemies().count() + sim.getBossRobots().count() + sim.getProjectiles().count();
+    }
+
+    public int getTargetFps() { return targetFps; }
+    public boolean hasResult() { return bestLevel > 0; }
+    public int getBestLevel() { return bestLevel; }
+    public int getBestEntityCount() { return bestEntities; }
+    public double getLastWindowFps() { return lastWindowFps; }
+    public int getMissedWindows() { return missedWindows; }
+
+    public String summary() {
+        if (!hasResult()) {
+            return "Never held " + targetFps + " fps";
+        }
+        return "Held " + targetFps + " fps up to level " + bestLevel + " with " + bestEntities + " entities";
+    }
+}
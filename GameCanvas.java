@@ -0,0 +1,106 @@
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+
+// Active-rendering alternative to the RobotSurvivalGame panel.
+// A dedicated thread draws the simulation thread's latest snapshot straight into a BufferStrategy,
+// so frames are never coalesced or delayed by the Swing repaint manager.
+public class GameCanvas extends Canvas implements Runnable {
+    private static final long serialVersionUID = 1L;
+
+    private final GameSimulation simulation = RobotSurvivalGame.createSimulation();
+    private final GameLoop loop = RobotSurvivalGame.createLoop(simulation);
+    private final InputQueue input = new InputQueue();
+    private final GameRenderer renderer;
+    private final PerformanceStats stats = new PerformanceStats(RobotSurvivalGame.getRefreshRate());
+    private final SimulationThread simulationThread = new SimulationThread(loop, input);
+    private final long frameNanos;
+    private volatile boolean running = false;
+    private Thread renderThread;
+    private boolean firstFrameShown;
+
+    public GameCanvas() {
+        this(null);
+    }
+
+    // assets may be null, in which case sprites are built as they are first drawn
+    public GameCanvas(Assets assets) {
+        renderer = RobotSurvivalGame.createRenderer(simulation, assets);
+        setPreferredSize(new Dimension(GameSimulation.WIDTH, GameSimulation.HEIGHT));
+        setBackground(Color.BLACK);
+        setIgnoreRepaint(true); // we draw every frame ourselves
+
+        loop.setPerformanceStats(stats);
+        renderer.setPerformanceStats(stats);
+        new GameMetrics(loop, renderer, stats).register();
+        addKeyListener(new KeyboardInput(input, stats));
+        if (loop.isReplaying()) {
+            addKeyListener(new ReplayControls(loop));
+        }
+        setFocusable(true);
+
+        frameNanos = 1_000_000_000L / RobotSurvivalGame.getRefreshRate();
+    }
+
+    // True when the game was launched with -Drobo.render=active
+    public static boolean isRequested() {
+        return "active".equalsIgnoreCase(System.getProperty("robo.render"));
+    }
+
+    // Must be called once the canvas is displayable (after the frame is shown)
+    public void start() {
+        createBufferStrategy(2);
+        simulationThread.start();
+        running = true;
+        renderThread = new Thread(this, "Render");
+        renderThread.setDaemon(true);
+        renderThread.start();
+    }
+
+    public void stop() {
+        running = false;
+        simulationThread.stop();
+    }
+
+    @Override
+    public void run() {
+        BufferStrategy strategy = getBufferStrategy();
+        long nextFrame = System.nanoTime();
+
+        while (running) {
+            RenderSnapshot snapshot = simulationThread.latest();
+
+            // Redraw until the buffer contents survive (they can be lost, e.g. on a display change)
+            do {
+                do {
+                    Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
+                    try {
+                        renderer.render(g, snapshot, snapshot.getAlpha(System.nanoTime()), getWidth(), getHeight());
+                    } finally {
+                        g.dispose();
+                    }
+                } while (strategy.contentsRestored());
+                strategy.show();
+            } while (strategy.contentsLost());
+            if (!firstFrameShown) {
+                firstFrameShown = true;
+                Assets.logStartup("first game frame");
+            }
+
+            // Flush the pipeline so the frame reaches the screen now (matters on X11)
+            Toolkit.getDefaultToolkit().sync();
+
+            // Pace to the display refresh rate; if we fell behind, don't try to catch up
+            nextFrame += frameNanos;
+            long sleepNanos = nextFrame - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    Thread.sleep(sleepNanos / 1_000_000, (int) (sleepNanos % 1_000_000));
+                } catch (InterruptedException e) {
+                    return;
+                }
+            } else {
+                nextFrame = System.nanoTime();
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Java Flight Recorder events for the game, so a recording shows which tick, frame or game
+// event lined up with a GC pause or a slow frame.
+// All are off by default; turn them on with the settings in robo.jfc, e.g.
+//   java -XX:StartFlightRecording:settings=robo.jfc,filename=robo.jfr RobotSurvivalGame
+// Each helper first asks the event type whether it is enabled (a field read), and only then
+// creates the event, so with no recording running they cost nothing and allocate nothing.
+public class GameEvents {
+    private static final EventType TICK = EventType.getEventType(TickEvent.class);
+    private static final EventType PAINT = EventType.getEventType(PaintEvent.class);
+    private static final EventType LEVEL_UP = EventType.getEventType(LevelUpEvent.class);
+    private static final EventType BOSS_SPLIT = EventType.getEventType(BossSplitEvent.class);
+    private static final EventType LIFE_LOST = EventType.getEventType(LifeLostEvent.class);
+    private static final EventType PICKUP = EventType.getEventType(PickupEvent.class);
+    private static final EventType GAME_RESET = EventType.getEventType(GameResetEvent.class);
+
+    @Name("robo.Tick")
+    @Label("Tick")
+    @Category({"ROBO", "Simulation"})
+    @Description("One fixed-timestep simulation step")
+    @Enabled(false)
+    @StackTrace(false)
+    static class TickEvent extends Event {
+        @Label("Tick") int tick;
+        @Label("Level") int level;
+        @Label("Enemies") int enemies;
+        @Label("Bosses") int bosses;
+        @Label("Projectiles") int projectiles;
+    }
+
+    @Name("robo.Paint")
+    @Label("Paint")
+    @Category({"ROBO", "Rendering"})
+    @Description("Drawing one frame")
+    @Enabled(false)
+    @StackTrace(false)
+    static class PaintEvent extends Event {
+        @Label("Entities Drawn") int entities;
+        @Label("Allocated Bytes") long allocatedBytes;
+    }
+
+    @Name("robo.LevelUp")
+    @Label("Level Up")
+    @Category({"ROBO", "Game"})
+    @Enabled(false)
+    @StackTrace(false)
+    static class LevelUpEvent extends Event {
+        @Label("Level") int level;
+        @Label("Enemies") int enemies;
+        @Label("Bosses") int bosses;
+    }
+
+    @Name("robo.BossSplit")
+    @Label("Boss Split")
+    @Category({"ROBO", "Game"})
+    @Description("A boss was hit and split in two, or destroyed when too small to split")
+    @Enabled(false)
+    @StackTrace(false)
+    static class BossSplitEvent extends Event {
+        @Label("Size") int size;
+        @Label("Destroyed") boolean destroyed;
+        @Label("Bosses Left") int bosses;
+    }
+
+    @Name("robo.LifeLost")
+    @Label("Life Lost")
+    @Category({"ROBO", "Game"})
+    @Description("The player was hit; the Shield Module may have blocked it")
+    @Enabled(false)
+    @StackTrace(false)
+    static class LifeLostEvent extends Event {
+        @Label("Lives Left") int lives;
+        @Label("Blocked By Shield") boolean blocked;
+    }
+
+    @Name("robo.Pickup")
+    @Label("Pickup")
+    @Category({"ROBO", "Game"})
+    @Enabled(false)
+    @StackTrace(false)
+    static class PickupEvent extends Event {
+        @Label("Item") String item;
+        @Label("Level") int level;
+    }
+
+    @Name("robo.GameReset")
+    @Label("Game Reset")
+    @Category({"ROBO", "Game"})
+    @Enabled(false)
+    @StackTrace(false)
+    static class GameResetEvent extends Event {
+        @Label("Survival Ticks") int survivalTime;
+        @Label("Level Reached") int level;
+    }
+
+    // Returns a started tick event, or null when tick events aren't being recorded
+    static TickEvent beginTick() {
+        if (!TICK.isEnabled()) {
+            return null;
+        }
+        TickEvent event = new TickEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endTick(TickEvent event, GameSimulation sim) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.tick = sim.getSurvivalTime();
+            event.level = sim.getCurrentLevel();
+            event.enemies = sim.getEnemies().count();
+            event.bosses = sim.getBossRobots().count();
+            event.projectiles = sim.getProjectiles().count();
+            event.commit();
+        }
+    }
+
+    static PaintEvent beginPaint() {
+        if (!PAINT.isEnabled()) {
+            return null;
+        }
+        PaintEvent event = new PaintEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endPaint(PaintEvent event, RenderSnapshot sim, long allocatedBytes) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.entities = sim.getEnemies().count() + sim.getBossRobots().count() + sim.getProjectiles().count();
+            event.allocatedBytes = allocatedBytes;
+            event.commit();
+        }
+    }
+
+    static void levelUp(int level, int enemies, int bosses) {
+        if (LEVEL_UP.isEnabled()) {
+            LevelUpEvent event = new LevelUpEvent();
+            event.level = level;
+            event.enemies = enemies;
+            event.bosses = bosses;
+            event.commit();
+        }
+    }
+
+    static void bossSplit(int size, boolean destroyed, int bosses) {
+        if (BOSS_SPLIT.isEnabled()) {
+            BossSplitEvent event = new BossSplitEvent();
+            event.size = size;
+            event.destroyed = destroyed;
+            event.bosses = bosses;
+            event.commit();
+        }
+    }
+
+    static void lifeLost(int lives, boolean blocked) {
+        if (LIFE_LOST.isEnabled()) {
+            LifeLostEvent event = new LifeLostEvent();
+            event.lives = lives;
+            event.blocked = blocked;
+            event.commit();
+        }
+    }
+
+    static void pickup(String item, int level) {
+        if (PICKUP.isEnabled()) {
+            PickupEvent event = new PickupEvent();
+            event.item = item;
+            event.level = level;
+            event.commit();
+        }
+    }
+
+    static void gameReset(int survivalTime, int level) {
+        if (GAME_RESET.isEnabled()) {
+            GameResetEvent event = new GameResetEvent();
+            event.survivalTime = survivalTime;
+            event.level = level;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+import java.io.IOException;
+
+// Fixed-timestep driver for a GameSimulation.
+// Real time is measured with System.nanoTime and fed into an accumulator, which is drained
+// in whole ticks. Whatever is left over becomes the interpolation factor for rendering.
+// Input is taken once per tick, from the key listener's InputQueue or by sampling a scripted
+// InputState, so a tick never sees two inputs and a recording of them replays exactly.
+// When hosting co-op, the CoopServer is polled for the partner's input before each tick and
+// sends its snapshots after it.
+public class GameLoop {
+    // Never try to catch up more than this much time at once (e.g. after a debugger pause)
+    private static final long MAX_FRAME_NANOS = 250_000_000L;
+
+    private final GameSimulation simulation;
+    private long tickNanos;
+    private long accumulator = 0;
+    private long lastTime = -1;
+
+    // Performance overlay numbers, when shown
+    private PerformanceStats stats;
+
+    // Asked for from another thread (JMX) and applied between ticks; 0 and -1 when none
+    private volatile int requestedTickRate;
+    private volatile float requestedEnemyCountMultiplier = -1;
+
+    private final InputState tickInput = new InputState();
+    private InputRecorder recorder;
+    private CoopServer coopServer;
+
+    // Replay: ticks come from a recording instead of the keyboard, replaySpeed of them per tick of
+    // real time; seeks are asked for from the key listener and done between frames
+    public static final int MAX_REPLAY_SPEED = 64;
+    private InputRecording replay;
+    private volatile int replaySpeed = 1;
+    private volatile long requestedSeek = -1;
+    private volatile long replayTick;
+
+    public GameLoop(GameSimulation simulation) {
+        this.simulation = simulation;
+        this.tickNanos = 1_000_000_000L / simulation.getTickRate();
+    }
+
+    // Runs as many ticks as real time allows, with the given input, and returns how many were run
+    public int advance(InputState input) {
+        return advance(input, null);
+    }
+
+    // The same, draining the key events queued since the last tick before each tick
+    public int advance(InputQueue queue) {
+        return advance(null, queue);
+    }
+
+    private int advance(InputState input, InputQueue queue) {
+        long now = System.nanoTime();
+        if (lastTime < 0) {
+            lastTime = now;
+        }
+        long frameTime = Math.min(now - lastTime, MAX_FRAME_NANOS);
+        lastTime = now;
+
+        int rate = requestedTickRate;
+        if (rate != 0) {
+            requestedTickRate = 0;
+            applyTickRate(rate);
+        }
+        float multiplier = requestedEnemyCountMultiplier;
+        if (multiplier >= 0) {
+            requestedEnemyCountMultiplier = -1;
+            simulation.setEnemyCountMultiplier(multiplier);
+            if (recorder != null) {
+                recorder.enemyCountMultiplierChanged(multiplier);
+            }
+        }
+
+        accumulator += frameTime;
+        if (replay != null) {
+            if (queue != null) {
+                queue.drain(); // keys don't steer a replay
+            }
+            return advanceReplay();
+        }
+        int ticksRun = 0;
+        while (accumulator >= tickNanos) {
+            tickInput.setBits(queue != null ? queue.drain() : input.toBits());
+            if (recorder != null) {
+                // The recorder may be closed from a shutdown hook; it must only ever see whole ticks
+                synchronized (recorder) {
+                    recorder.record(tickInput);
+                    step();
+                }
+            } else {
+                step();
+            }
+            accumulator -= tickNanos;
+            ticksRun++;
+        }
+        return ticksRun;
+    }
+
+    private int advanceReplay() {
+        long seek = requestedSeek;
+        if (seek >= 0) {
+            requestedSeek = -1;
+            replay.seek(seek, simulation, tickInput);
+        }
+        int speed = replaySpeed;
+        int ticksRun = 0;
+        while (accumulator >= tickNanos) {
+            for (int i = 0; i < speed && replay.next(tickInput, simulation); i++) {
+                step();
+                ticksRun++;
+            }
+            accumulator -= tickNanos;
+        }
+        // The recording may have changed the tick rate
+        tickNanos = 1_000_000_000L / simulation.getTickRate();
+        replayTick = replay.getTick();
+        return ticksRun;
+    }
+
+    private void step() {
+        InputState partnerInput = pollCoopServer();
+        if (stats != null) {
+            long start = System.nanoTime();
+            simulation.step(tickInput, partnerInput);
+            stats.recordTick(System.nanoTime() - start, simulation);
+        } else {
+            simulation.step(tickInput, partnerInput);
+        }
+        if (coopServer != null) {
+            try {
+                coopServer.afterTick(simulation);
+            } catch (IOException e) {
+                stopCoopServer(e);
+            }
+        }
+    }
+
+    private InputState pollCoopServer() {
+        if (coopServer == null || replay != null) {
+            return null;
+        }
+        try {
+            return coopServer.poll(simulation);
+        } catch (IOException e) {
+            stopCoopServer(e);
+            return null;
+        }
+    }
+
+    // A broken socket ends co-op; the host plays on alone
+    private void stopCoopServer(IOException e) {
+        System.err.println("Co-op stopped: " + e);
+        try {
+            coopServer.close();
+        } catch (IOException closing) {
+            // Gone anyway
+        }
+        coopServer = null;
+        simulation.setPartnerJoined(false);
+    }
+
+    // Changes the tick rate before the next tick; safe to call from any thread
+    public void requestTickRate(int rate) {
+        if (!GameSimulation.isSupportedTickRate(rate)) {
+            throw new IllegalArgumentException("Unsupported tick rate: " + rate);
+        }
+        requestedTickRate = rate;
+    }
+
+    public void requestEnemyCountMultiplier(float multiplier) {
+        GameSimulation.checkEnemyCountMultiplier(multiplier);
+        requestedEnemyCountMultiplier = multiplier;
+    }
+
+    // Plays the recording from its start instead of reading input
+    public void setReplay(InputRecording replay) {
+        if (!replay.hasStartKeyframe()) {
+            throw new IllegalArgumentException("Recording has no start keyframe (version 1); play it with ReplayRunner");
+        }
+        replay.rewind(simulation);
+        tickNanos = 1_000_000_000L / simulation.getTickRate();
+        this.replay = replay;
+    }
+
+    public boolean isReplaying() {
+        return replay != null;
+    }
+
+    // Fast-forward: ticks per tick of real time, 1 to MAX_REPLAY_SPEED
+    public void setReplaySpeed(int speed) {
+        replaySpeed = Math.max(1, Math.min(speed, MAX_REPLAY_SPEED));
+    }
+
+    public int getReplaySpeed() {
+        return replaySpeed;
+    }
+
+    // Jumps the replay to a tick (clamped to the recording) before the next frame
+    public void requestSeek(long tick) {
+        requestedSeek = Math.max(0, tick);
+    }
+
+    // Replay position as of the last frame
+    public long getReplayTick() {
+        return replayTick;
+    }
+
+    // Writes every tick's input (and live tuning changes) to the recorder from now on
+    public void setRecorder(InputRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    // Hosts co-op from the next tick; not in swarm mode, whose snapshots wouldn't fit a datagram
+    public void setCoopServer(CoopServer server) {
+        if (simulation.isSwarmMode()) {
+            throw new IllegalArgumentException("Co-op can't be hosted in swarm mode");
+        }
+        this.coopServer = server;
+    }
+
+    private void applyTickRate(int rate) {
+        if (rate == simulation.getTickRate()) {
+            return;
+        }
+        // Keep the same fraction of a tick in the accumulator so interpolation doesn't jump
+        float alpha = getAlpha();
+        simulation.setTickRate(rate);
+        if (recorder != null) {
+            recorder.tickRateChanged(rate);
+        }
+        tickNanos = 1_000_000_000L / rate;
+        accumulator = (long) (alpha * tickNanos);
+    }
+
+    // Records tick times (and the simulation's phase split) into the stats
+    public void setPerformanceStats(PerformanceStats stats) {
+        this.stats = stats;
+        simulation.setProfiling(stats != null);
+    }
+
+    // How far we are between the last tick and the next one, from 0 to 1
+    public float getAlpha() {
+        return (float) accumulator / tickNanos;
+    }
+
+    // When (System.nanoTime) the last tick run was due, as of the last advance
+    public long getLastTickTime() {
+        return lastTime - accumulator;
+    }
+
+    // How long after the last advance the next tick is due
+    public long getNanosUntilNextTick() {
+        return tickNanos - accumulator;
+    }
+
+    public GameSimulation getSimulation() {
+        return simulation;
+    }
+}
@@ -0,0 +1,152 @@
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// JMX view of a running game (see GameMetricsMXBean).
+// Reads come from JMX threads while the game runs, so they never touch the simulation: its
+// values come from the copy PerformanceStats makes after each tick into volatile fields, so each
+// is as of the last tick. Each attribute is read on its own, so two of them may be a tick apart.
+// Writes are handed over rather than applied: tick rate and enemy count multiplier wait for the
+// loop's next frame (so recordings can place them between ticks), render quality for the next paint.
+public class GameMetrics implements GameMetricsMXBean {
+    public static final String OBJECT_NAME = "robo:type=GameMetrics";
+
+    private final GameLoop loop;
+    private final GameRenderer renderer;
+    private final PerformanceStats stats;
+
+    public GameMetrics(GameLoop loop, GameRenderer renderer, PerformanceStats stats) {
+        this.loop = loop;
+        this.renderer = renderer;
+        this.stats = stats;
+        stats.recordWorld(loop.getSimulation()); // until the first tick, before the loop runs
+    }
+
+    // Registers with the platform MBean server, replacing any game registered before (e.g. a
+    // previous window in the same JVM). JMX being unavailable never stops the game.
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException | SecurityException e) {
+            System.err.println("Couldn't register " + OBJECT_NAME + ": " + e);
+        }
+    }
+
+    @Override
+    public long getTickCount() {
+        return stats.getTickCount();
+    }
+
+    @Override
+    public double getAverageTickMillis() {
+        long count = stats.getTickCount();
+        return count == 0 ? 0 : stats.getTickNanosTotal() / 1e6 / count;
+    }
+
+    @Override
+    public double getPeakTickMillis() {
+        return stats.getPeakTickNanos() / 1e6;
+    }
+
+    @Override
+    public long getPaintCount() {
+        return stats.getPaintCount();
+    }
+
+    @Override
+    public double getAveragePaintMillis() {
+        long count = stats.getPaintCount();
+        return count == 0 ? 0 : stats.getPaintNanosTotal() / 1e6 / count;
+    }
+
+    @Override
+    public double getPeakPaintMillis() {
+        return stats.getPeakPaintNanos() / 1e6;
+    }
+
+    @Override
+    public long getDroppedFrames() {
+        return stats.getDroppedFrames();
+    }
+
+    @Override
+    public double getInputLatencyP50Millis() {
+        return stats.getInputLatency().percentile(0.5) / 1e6;
+    }
+
+    @Override
+    public double getInputLatencyP99Millis() {
+        return stats.getInputLatency().percentile(0.99) / 1e6;
+    }
+
+    @Override
+    public double getInputLatencyMaxMillis() {
+        return stats.getInputLatency().max() / 1e6;
+    }
+
+    @Override
+    public int getEnemyCount() {
+        return stats.getEnemyCount();
+    }
+
+    @Override
+    public int getBossCount() {
+        return stats.getBossCount();
+    }
+
+    @Override
+    public int getProjectileCount() {
+        return stats.getProjectileCount();
+    }
+
+    @Override
+    public int getCurrentLevel() {
+        return stats.getCurrentLevel();
+    }
+
+    @Override
+    public int getLives() {
+        return stats.getLives();
+    }
+
+    @Override
+    public int getTickRate() {
+        return stats.getTickRate();
+    }
+
+    @Override
+    public void setTickRate(int rate) {
+        loop.requestTickRate(rate);
+    }
+
+    @Override
+    public float getEnemyCountMultiplier() {
+        return stats.getEnemyCountMultiplier();
+    }
+
+    @Override
+    public void setEnemyCountMultiplier(float multiplier) {
+        loop.requestEnemyCountMultiplier(multiplier);
+    }
+
+    @Override
+    public String getRenderQuality() {
+        return renderer.getRenderQuality();
+    }
+
+    @Override
+    public void setRenderQuality(String quality) {
+        renderer.setRenderQuality(quality);
+    }
+
+    @Override
+    public void resetPeaks() {
+        stats.resetPeaks();
+    }
+}
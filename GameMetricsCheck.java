@@ -0,0 +1,121 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import javax.management.Attribute;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Verifies the robo:type=GameMetrics bean the way a JMX client sees it: registers one for a
+// headless game, reads its counters through the platform MBean server while the loop runs in real
+// time, sets the tick rate, enemy count multiplier and render quality and checks each is applied
+// by the next ticks (or paint), and checks that bad values are refused with an error and leave the
+// game running as it was. Exits with status 1 if anything isn't so.
+// Usage: java -Djava.awt.headless=true GameMetricsCheck
+public class GameMetricsCheck {
+    private static final long SEED = 12345;
+    private static final int RUN_TICKS = 20;
+
+    private static MBeanServer server;
+    private static ObjectName name;
+    private static boolean ok = true;
+
+    public static void main(String[] args) throws Exception {
+        GameSimulation simulation = new GameSimulation(GameSimulation.DEFAULT_TICK_RATE, SEED);
+        simulation.skipCountdown();
+        GameLoop loop = new GameLoop(simulation);
+        GameRenderer renderer = new GameRenderer();
+        PerformanceStats stats = new PerformanceStats(60);
+        loop.setPerformanceStats(stats);
+        renderer.setPerformanceStats(stats);
+        new GameMetrics(loop, renderer, stats).register();
+        server = ManagementFactory.getPlatformMBeanServer();
+        name = new ObjectName(GameMetrics.OBJECT_NAME);
+        if (!server.isRegistered(name)) {
+            System.out.println(GameMetrics.OBJECT_NAME + " isn't registered");
+            System.exit(1);
+        }
+
+        BufferedImage screen = new BufferedImage(GameSimulation.WIDTH, GameSimulation.HEIGHT, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = screen.createGraphics();
+        InputState input = new InputState();
+        input.right = true;
+
+        // Reads
+        run(loop, input, renderer, g, simulation);
+        expect("TickCount", (Long) get("TickCount") > 0 && (Long) get("TickCount") == stats.getTickCount(),
+                get("TickCount"));
+        expect("PaintCount", (Long) get("PaintCount") > 0, get("PaintCount"));
+        expect("CurrentLevel", (Integer) get("CurrentLevel") == simulation.getCurrentLevel(), get("CurrentLevel"));
+        expect("Lives", (Integer) get("Lives") == simulation.getLives(), get("Lives"));
+        expect("EnemyCount", (Integer) get("EnemyCount") == simulation.getEnemies().count(), get("EnemyCount"));
+
+        // Writes wait for the loop
+        set("TickRate", 120);
+        set("EnemyCountMultiplier", 2.5f);
+        expect("TickRate before the next frame", simulation.getTickRate() == GameSimulation.DEFAULT_TICK_RATE,
+                simulation.getTickRate());
+        run(loop, input, renderer, g, simulation);
+        expect("TickRate", simulation.getTickRate() == 120 && (Integer) get("TickRate") == 120, get("TickRate"));
+        expect("EnemyCountMultiplier", simulation.getEnemyCountMultiplier() == 2.5f
+                && (Float) get("EnemyCountMultiplier") == 2.5f, get("EnemyCountMultiplier"));
+        set("RenderQuality", GameRenderer.QUALITY_HIGH);
+        run(loop, input, renderer, g, simulation);
+        expect("RenderQuality", GameRenderer.QUALITY_HIGH.equals(get("RenderQuality")), get("RenderQuality"));
+
+        // Bad values are refused and change nothing
+        refused("TickRate", 7);
+        refused("EnemyCountMultiplier", -1f);
+        refused("EnemyCountMultiplier", Float.NaN);
+        refused("EnemyCountMultiplier", Float.POSITIVE_INFINITY);
+        refused("EnemyCountMultiplier", 1e9f);
+        refused("RenderQuality", "fastest");
+        long ticksBefore = stats.getTickCount();
+        run(loop, input, renderer, g, simulation);
+        expect("ticks after refused writes", stats.getTickCount() > ticksBefore, stats.getTickCount() - ticksBefore);
+        expect("TickRate after refused writes", simulation.getTickRate() == 120, simulation.getTickRate());
+        expect("EnemyCountMultiplier after refused writes", simulation.getEnemyCountMultiplier() == 2.5f,
+                simulation.getEnemyCountMultiplier());
+        expect("RenderQuality after refused writes", GameRenderer.QUALITY_HIGH.equals(renderer.getRenderQuality()),
+                renderer.getRenderQuality());
+
+        g.dispose();
+        System.out.println(ok ? "OK" : "FAILED");
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    // Plays in real time until RUN_TICKS more ticks have run, painting a frame after each batch
+    private static void run(GameLoop loop, InputState input, GameRenderer renderer, Graphics2D g,
+                            GameSimulation simulation) throws InterruptedException {
+        for (int ticks = 0; ticks < RUN_TICKS; ) {
+            ticks += loop.advance(input);
+            renderer.render(g, simulation, loop.getAlpha(), GameSimulation.WIDTH, GameSimulation.HEIGHT);
+            Thread.sleep(5);
+        }
+    }
+
+    private static Object get(String attribute) throws JMException {
+        return server.getAttribute(name, attribute);
+    }
+
+    private static void set(String attribute, Object value) throws JMException {
+        server.setAttribute(name, new Attribute(attribute, value));
+    }
+
+    private static void refused(String attribute, Object value) {
+        try {
+            set(attribute, value);
+            System.out.println(attribute + " = " + value + ": accepted, should have been refused");
+            ok = false;
+        } catch (JMException | RuntimeException e) {
+            System.out.println(attribute + " = " + value + ": refused");
+        }
+    }
+
+    private static void expect(String what, boolean condition, Object value) {
+        System.out.println(what + ": " + value + (condition ? "" : "  <-- wrong"));
+        ok &= condition;
+    }
+}
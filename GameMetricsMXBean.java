@@ -0,0 +1,38 @@
+// Live game metrics and tuning knobs, exposed over JMX as robo:type=GameMetrics.
+// Open JConsole or VisualVM on a running game to watch and change them.
+// Times are in milliseconds; counts and peaks are since the game started (or ResetPeaks).
+public interface GameMetricsMXBean {
+    long getTickCount();
+    double getAverageTickMillis();
+    double getPeakTickMillis();
+    long getPaintCount();
+    double getAveragePaintMillis();
+    double getPeakPaintMillis();
+    long getDroppedFrames();
+
+    // Key event to the end of the first frame painted with it
+    double getInputLatencyP50Millis();
+    double getInputLatencyP99Millis();
+    double getInputLatencyMaxMillis();
+
+    int getEnemyCount();
+    int getBossCount();
+    int getProjectileCount();
+    int getCurrentLevel();
+    int getLives();
+
+    // One of GameSimulation.TICK_RATES, applied before the next tick
+    int getTickRate();
+    void setTickRate(int rate);
+
+    // Scales the enemies per level (0 to GameSimulation.MAX_ENEMY_COUNT_MULTIPLIER), from the next
+    // level up or restart
+    float getEnemyCountMultiplier();
+    void setEnemyCountMultiplier(float multiplier);
+
+    // "speed" or "quality"
+    String getRenderQuality();
+    void setRenderQuality(String quality);
+
+    void resetPeaks();
+}
@@ -0,0 +1,38 @@
+import java.util.Random;
+
+// java.util.Random's generator with its state exposed, so replay keyframes can save and restore it.
+// Same algorithm and seeding as Random, so a seed gives exactly the sequence it always did and
+// older recordings still replay. Not thread-safe (the simulation is single-threaded), and
+// nextGaussian's cached second value isn't part of the state; the game doesn't use it.
+public class GameRandom extends Random {
+    private static final long serialVersionUID = 1L;
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state; // no initializer: Random's constructor sets it through setSeed
+
+    public GameRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state & MASK;
+    }
+}
@@ -0,0 +1,620 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+// Draws one frame from a RenderSnapshot of a GameSimulation. Shared by the Swing panel and the
+// active-rendering canvas, which paint snapshots published by the SimulationThread; headless
+// tools can hand in the simulation itself.
+public class GameRenderer {
+    private static final int HUD_HEIGHT = 110;
+
+    // What the message layer currently shows
+    private static final int MESSAGE_COUNTDOWN = 0;
+    private static final int MESSAGE_GO = 1;
+    private static final int MESSAGE_LEVEL_UP = 2;
+    private static final int MESSAGE_VICTORY = 3;
+    private static final int MESSAGE_GAME_OVER = 4;
+
+    // Everything the frame draws with is created once, never per frame
+    private static final Font FONT_COUNTDOWN = new Font("Arial", Font.BOLD, 80);
+    private static final Font FONT_GO = new Font("Arial", Font.BOLD, 60);
+    private static final Font FONT_TITLE = new Font("Arial", Font.BOLD, 50);
+    private static final Font FONT_LEVEL_UP = new Font("Arial", Font.BOLD, 40);
+    private static final Font FONT_BOSS = new Font("Arial", Font.BOLD, 30);
+    private static final Font FONT_LARGE = new Font("Arial", Font.PLAIN, 30);
+    private static final Font FONT_MEDIUM = new Font("Arial", Font.PLAIN, 20);
+    private static final Font FONT_SMALL = new Font("Arial", Font.PLAIN, 16);
+    private static final Font FONT_STATS = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private static final Color BACKGROUND = new Color(20, 20, 40);
+    private static final Color GRID = new Color(30, 30, 60);
+    private static final Color HUD_BACKGROUND = new Color(0, 0, 0, 150);
+    private static final Color OVERLAY = new Color(0, 0, 0, 200);
+    private static final Color GOLD = new Color(255, 215, 0);
+    private static final Color VICTORY_GREEN = new Color(50, 200, 50);
+    private static final Color PARTNER_OUTLINE = new Color(0, 220, 255); // tells the co-op robots apart
+    private final TextBuffer text = new TextBuffer(64);
+
+    // Bytes allocated by the last render() call on its thread, -1 if unknown
+    private long lastFrameAllocatedBytes = -1;
+    private long layerRebuilds; // cached layers redrawn so far, the frames that may allocate
+
+    private SpriteCache sprites;
+    private final RenderSnapshot snapshot = new RenderSnapshot(); // for render(GameSimulation)
+
+    // Frame times are measured here, between paints, as the simulation has its own thread
+    private long lastFrameStart = -1;
+    private FrameRateTracker frameRate; // swarm mode: the frame rate held at each level
+    private boolean reported;
+    private long latencySequence; // last snapshot whose key events were measured
+
+    // Render quality: "speed" draws sprites and text without antialiasing, "quality" with it.
+    // Either way it only affects how the cached sprites and layers are drawn, so switching
+    // rebuilds them once and frames cost the same afterwards. Can be set from any thread.
+    public static final String QUALITY_SPEED = "speed", QUALITY_HIGH = "quality";
+    private volatile boolean highQuality;
+    private boolean layersHighQuality; // what the cached sprites and layers were drawn with
+
+    // Performance overlay (F3), redrawn once a second when its numbers change
+    private static final int STATS_WIDTH = 330, STATS_HEIGHT = 190;
+    private PerformanceStats stats;
+    private boolean eventsEnabled = true;
+    private BufferedImage statsImage;
+    private Graphics2D statsGraphics;
+    private int statsWindow = -1;
+
+    // Cached layers: the background grid and the HUD text/hearts
+    private BufferedImage background;
+    private BufferedImage hudImage;
+    private Graphics2D hudGraphics; // kept for the layer's lifetime; creating one per redraw is garbage
+    private int hudSeconds, hudLevel, hudLives, hudMaterials;
+    private boolean hudLevelMaterial, hudBossLevel, hudWeapon;
+    private BufferedImage messageImage;
+    private Graphics2D messageGraphics;
+    private int messageKind, messageSeconds, messageLevel, messageMaterials;
+    private boolean messageWeapon;
+
+    // Position between the previous and current tick
+    private static int lerp(float previous, float current, float alpha) {
+        return Math.round(previous + (current - previous) * alpha);
+    }
+
+    // Sprites are made compatible with whatever surface we first draw to
+    private SpriteCache getSprites(Graphics2D g) {
+        if (sprites == null) {
+            sprites = new SpriteCache(g.getDeviceConfiguration(), layersHighQuality);
+        }
+        return sprites;
+    }
+
+    // Uses sprites built ahead of time (see Assets); they are still rebuilt if the quality changes
+    public void setSprites(SpriteCache sprites) {
+        this.sprites = sprites;
+    }
+
+    public void setPerformanceStats(PerformanceStats stats) {
+        this.stats = stats;
+    }
+
+    // Off for frames nobody sees (Warmup's), so they don't show up as robo.Paint events
+    public void setEventsEnabled(boolean eventsEnabled) {
+        this.eventsEnabled = eventsEnabled;
+    }
+
+    public void setRenderQuality(String quality) {
+        if (QUALITY_HIGH.equals(quality)) {
+            highQuality = true;
+        } else if (QUALITY_SPEED.equals(quality)) {
+            highQuality = false;
+        } else {
+            throw new IllegalArgumentException("Render quality must be " + QUALITY_SPEED + " or " + QUALITY_HIGH + ": " + quality);
+        }
+    }
+
+    public String getRenderQuality() {
+        return highQuality ? QUALITY_HIGH : QUALITY_SPEED;
+    }
+
+    // Drops the cached sprites and text layers so they are redrawn at the new quality
+    private void applyRenderQuality() {
+        layersHighQuality = highQuality;
+        sprites = null;
+        hudImage = null;
+        messageImage = null;
+        if (statsGraphics != null) {
+            statsGraphics.dispose();
+        }
+        statsImage = null;
+        statsGraphics = null;
+    }
+
+    // Starts recording the frame rate held at each level, printed when the game ends
+    public void trackFrameRate(int targetFps) {
+        frameRate = new FrameRateTracker(targetFps);
+    }
+
+    public FrameRateTracker getFrameRate() {
+        return frameRate;
+    }
+
+    // Draws the simulation as it is now, from the calling thread
+    public void render(Graphics2D g2d, GameSimulation sim, float alpha, int width, int height) {
+        snapshot.capture(sim, 0);
+        render(g2d, snapshot, alpha, width, height);
+    }
+
+    public void render(Graphics2D g2d, RenderSnapshot sim, float alpha, int width, int height) {
+        GameEvents.PaintEvent event = eventsEnabled ? GameEvents.beginPaint() : null;
+        long allocatedBefore = AllocationProbe.currentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        if (lastFrameStart >= 0 && start != lastFrameStart) {
+            if (stats != null) {
+                stats.recordFrame(start - lastFrameStart);
+            }
+            if (frameRate != null) {
+                trackFrame(start - lastFrameStart, sim);
+            }
+        }
+        lastFrameStart = start;
+        if (highQuality != layersHighQuality) {
+            applyRenderQuality();
+        }
+        drawFrame(g2d, sim, alpha, width, height);
+        if (stats != null) {
+            stats.recordRender(System.nanoTime() - start);
+            if (stats.isVisible()) {
+                g2d.drawImage(getStatsOverlay(g2d, sim), 5, height - STATS_HEIGHT - 5, null);
+            }
+            if (sim.getSequence() != latencySequence) {
+                latencySequence = sim.getSequence();
+                long end = System.nanoTime();
+                for (int i = 0; i < sim.getInputEventCount(); i++) {
+                    stats.recordInputLatency(end - sim.getInputEventTime(i));
+                }
+            }
+        }
+        if (allocatedBefore >= 0) {
+            lastFrameAllocatedBytes = AllocationProbe.currentThreadAllocatedBytes() - allocatedBefore;
+        }
+        if (event != null) {
+            GameEvents.endPaint(event, sim, lastFrameAllocatedBytes);
+        }
+    }
+
+    private void trackFrame(long frameNanos, RenderSnapshot sim) {
+        if (sim.isGameOver()) {
+            if (!reported) {
+                System.out.println("Swarm: " + frameRate.summary());
+                reported = true;
+            }
+        } else if (sim.isPlaying()) {
+            int entities = sim.getEnemies().count() + sim.getBossRobots().count() + sim.getProjectiles().count();
+            frameRate.frame(frameNanos, sim.getCurrentLevel(), entities);
+            reported = false;
+        }
+    }
+
+    // Per-frame garbage, so render-path allocation regressions show up in numbers
+    public long getLastFrameAllocatedBytes() {
+        return lastFrameAllocatedBytes;
+    }
+
+    // How many times a cached layer (background, HUD, message, stats overlay) has been redrawn
+    public long getLayerRebuilds() {
+        return layerRebuilds;
+    }
+
+    private void drawFrame(Graphics2D g2d, RenderSnapshot sim, float alpha, int width, int height) {
+        Graphics g = g2d;
+
+        int robotX = lerp(sim.getPrevRobotX(), sim.getRobotX(), alpha);
+        int robotY = lerp(sim.getPrevRobotY(), sim.getRobotY(), alpha);
+        int robotSize = sim.getRobotSize();
+        int foodX = sim.getFoodX(), foodY = sim.getFoodY(), foodSize = sim.getFoodSize();
+        int survivalTime = sim.getSurvivalTime();
+        int scoreForNextLevel = sim.getScoreForNextLevel();
+        // Blink phase counted in 30ths of a second so it looks the same at any tick rate
+        int invincibilityTimer = sim.getInvincibilityTimer() * 30 / sim.getTickRate();
+        int collectedMaterialCount = sim.getCollectedMaterialCount();
+        boolean isBossLevel = sim.isBossLevel();
+        boolean hasWeapon = sim.hasWeapon();
+        Color materialColor = sim.getCurrentMaterialColor();
+
+        // Static background layer
+        g.drawImage(getBackground(g2d, width, height), 0, 0, null);
+
+        if (!sim.isGameStarted() || sim.isShowGoScreen()) {
+            g.drawImage(getMessage(g2d, sim, width, height), 0, 0, null);
+        } else if (!sim.isGameOver()) {
+            SpriteCache sprites = getSprites(g2d);
+
+            // Draw projectiles
+            EntityStore projectiles = sim.getProjectiles();
+            for (int i = 0; i < projectiles.count(); i++) {
+                int px = lerp(projectiles.prevX[i], projectiles.x[i], alpha);
+                int py = lerp(projectiles.prevY[i], projectiles.y[i], alpha);
+                sprites.projectile(sim.getProjectileColor(projectiles.type[i])).draw(g, px, py);
+            }
+
+            // Draw the player robot, and the co-op partner's, which shares its upgrades and lives
+            // Robot body gets brighter with collected materials in the boss level
+            int tier = 0;
+            if (isBossLevel && collectedMaterialCount >= 2) {
+                tier = Math.min(collectedMaterialCount, 4) - 1;
+            }
+            boolean weapon = isBossLevel && hasWeapon;
+            boolean shield = isBossLevel && sim.hasCollectedMaterial(2);
+            if (invincibilityTimer == 0 || invincibilityTimer % 6 >= 3) {  // Blinking effect when invincible
+                sprites.player(robotSize, tier, weapon, shield).draw(g, robotX, robotY);
+                if (sim.isPartnerJoined()) {
+                    int partnerX = lerp(sim.getPrevPartnerX(), sim.getPartnerX(), alpha);
+                    int partnerY = lerp(sim.getPrevPartnerY(), sim.getPartnerY(), alpha);
+                    sprites.player(robotSize, tier, weapon, shield).draw(g, partnerX, partnerY);
+                    g.setColor(PARTNER_OUTLINE);
+                    g.drawRect(partnerX - 2, partnerY - 2, robotSize + 3, robotSize + 3);
+                }
+            }
+
+            // Draw boss robots (only the boss level has any, except in swarm mode)
+            EntityStore bosses = sim.getBossRobots();
+            for (int i = 0; i < bosses.count(); i++) {
+                int bx = lerp(bosses.prevX[i], bosses.x[i], alpha);
+                int by = lerp(bosses.prevY[i], bosses.y[i], alpha);
+                sprites.boss(bosses.size[i]).draw(g, bx, by);
+            }
+
+            // Draw regular enemies
+            EntityStore enemies = sim.getEnemies();
+            for (int i = 0; i < enemies.count(); i++) {
+                int ex = lerp(enemies.prevX[i], enemies.x[i], alpha);
+                int ey = lerp(enemies.prevY[i], enemies.y[i], alpha);
+                sprites.enemy(enemies.size[i]).draw(g, ex, ey);
+            }
+
+            // Draw food (power cell)
+            if (!sim.isFoodCollected()) {
+                sprites.food(foodSize).draw(g, foodX, foodY);
+            }
+
+            // Draw the current material
+            if (materialColor != null) {
+                sprites.material(materialColor).draw(g, sim.getCurrentMaterialX(), sim.getCurrentMaterialY());
+            }
+
+            // Draw the HUD layer, rebuilt only when one of its values changes
+            g.drawImage(getHud(g2d, sim, width), 0, 0, null);
+
+            // Draw progress to next level (changes every tick, so it stays out of the HUD layer)
+            int progressToNextLevel = (survivalTime % scoreForNextLevel);
+            int progressBarWidth = 100;
+            int filledWidth = (int)((float)progressToNextLevel / scoreForNextLevel * progressBarWidth);
+            g.setColor(Color.DARK_GRAY);
+            g.fillRect(10, 95, progressBarWidth, 10);
+            g.setColor(Color.GREEN);
+            g.fillRect(10, 95, filledWidth, 10);
+
+            // Draw level up message if active
+            if (sim.isShowLevelUpMessage()) {
+                g.drawImage(getMessage(g2d, sim, width, height), 0, 0, null);
+            }
+
+        } else {
+            // Game over screen (victory or defeat)
+            g.drawImage(getMessage(g2d, sim, width, height), 0, 0, null);
+        }
+    }
+
+    // Redraws the message layer (countdown, GO, level-up banner, victory/defeat screen) when
+    // the message or a value shown in it changes. Text is the one thing Java2D still allocates
+    // for, each font switch sets up glyphs afresh, so it is drawn once per message, not per frame.
+    private BufferedImage getMessage(Graphics2D target, RenderSnapshot sim, int width, int height) {
+        int kind;
+        if (!sim.isGameStarted()) {
+            kind = MESSAGE_COUNTDOWN;
+        } else if (sim.isShowGoScreen()) {
+            kind = MESSAGE_GO;
+        } else if (sim.isGameOver()) {
+            kind = sim.isVictory() ? MESSAGE_VICTORY : MESSAGE_GAME_OVER;
+        } else {
+            kind = MESSAGE_LEVEL_UP;
+        }
+        // The level-up banner shows no seconds, so they mustn't redraw it once a second
+        int seconds;
+        if (kind == MESSAGE_COUNTDOWN) {
+            seconds = sim.getCountdownSeconds();
+        } else if (kind == MESSAGE_VICTORY || kind == MESSAGE_GAME_OVER) {
+            seconds = sim.getSurvivalSeconds();
+        } else {
+            seconds = 0;
+        }
+        int currentLevel = sim.getCurrentLevel();
+        int collectedMaterialCount = sim.getCollectedMaterialCount();
+        boolean isBossLevel = sim.isBossLevel();
+        boolean hasWeapon = sim.hasWeapon();
+
+        if (messageImage != null && messageImage.getWidth() == width && messageImage.getHeight() == height
+                && messageKind == kind && messageSeconds == seconds && messageLevel == currentLevel
+                && messageMaterials == collectedMaterialCount && messageWeapon == hasWeapon) {
+            return messageImage;
+        }
+        messageKind = kind;
+        messageSeconds = seconds;
+        messageLevel = currentLevel;
+        messageMaterials = collectedMaterialCount;
+        messageWeapon = hasWeapon;
+        layerRebuilds++;
+
+        if (messageImage == null || messageImage.getWidth() != width || messageImage.getHeight() != height) {
+            if (messageGraphics != null) {
+                messageGraphics.dispose();
+            }
+            messageImage = createLayer(target, width, height, Transparency.TRANSLUCENT);
+            messageGraphics = createLayerGraphics(messageImage);
+        }
+        Graphics2D g = messageGraphics;
+        // Start from a fully transparent layer
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, width, height);
+        g.setComposite(AlphaComposite.SrcOver);
+
+        if (kind == MESSAGE_COUNTDOWN) {
+            g.setColor(Color.WHITE);
+            g.setFont(FONT_COUNTDOWN);
+            text.clear().append(seconds).draw(g, width/2 - 20, height/2);
+        } else if (kind == MESSAGE_GO) {
+            g.setColor(Color.GREEN);
+            g.setFont(FONT_GO);
+            g.drawString("GO!", width/2 - 70, height/2);
+        } else if (kind == MESSAGE_LEVEL_UP) {
+            // Semi-transparent background
+            g.setColor(OVERLAY);
+            g.fillRect(width/2 - 200, height/2 - 100, 400, 200);
+
+            g.setColor(GOLD);
+            g.setFont(FONT_LEVEL_UP);
+            g.drawString("LEVEL UP!", width/2 - 100, height/2 - 50);
+            g.setFont(FONT_MEDIUM);
+            text.clear().append("Level ").append(currentLevel).draw(g, width/2 - 40, height/2 - 20);
+
+            if (isBossLevel) {
+                g.setColor(Color.RED);
+                g.setFont(FONT_BOSS);
+                g.drawString("BOSS LEVEL!", width/2 - 100, height/2 + 10);
+                g.setFont(FONT_MEDIUM);
+
+                if (hasWeapon) {
+                    g.setColor(Color.GREEN);
+                    g.drawString("All materials collected!", width/2 - 100, height/2 + 40);
+                    g.drawString("Use arrows to fire your weapon!", width/2 - 140, height/2 + 70);
+                } else {
+                    g.setColor(Color.ORANGE);
+                    g.drawString("Missing materials to build weapon!", width/2 - 140, height/2 + 40);
+                    g.drawString("Try to survive the boss!", width/2 - 100, height/2 + 70);
+                }
+            } else {
+                g.drawString("Enemies are faster!", width/2 - 80, height/2 + 10);
+                g.drawString("You got an extra life!", width/2 - 80, height/2 + 40);
+
+                // If we have a new material to find
+                String levelMaterial = sim.getMaterialName(currentLevel);
+                if (levelMaterial != null) {
+                    g.setColor(sim.getMaterialColor(currentLevel));
+                    text.clear().append("Find the ").append(levelMaterial).append('!').draw(g, width/2 - 100, height/2 + 70);
+                }
+            }
+        } else if (kind == MESSAGE_VICTORY) {
+            g.setColor(OVERLAY);
+            g.fillRect(0, 0, width, height);
+
+            g.setColor(VICTORY_GREEN);
+            g.setFont(FONT_TITLE);
+            g.drawString("VICTORY!", width/2 - 130, height/2 - 50);
+            g.setFont(FONT_LARGE);
+            g.setColor(Color.WHITE);
+            g.drawString("You defeated the boss!", width/2 - 150, height/2);
+            text.clear().append("Survival Time: ").append(seconds).append(" seconds").draw(g, width/2 - 170, height/2 + 40);
+            text.clear().append("Materials collected: ").append(collectedMaterialCount).append('/').append(GameSimulation.BOSS_LEVEL - 1).draw(g, width/2 - 150, height/2 + 80);
+            g.drawString("Press SPACE to play again", width/2 - 180, height/2 + 120);
+        } else {
+            // Defeat
+            g.setColor(OVERLAY);
+            g.fillRect(0, 0, width, height);
+
+            g.setColor(Color.RED);
+            g.setFont(FONT_TITLE);
+            g.drawString("GAME OVER", width/2 - 150, height/2 - 50);
+            g.setFont(FONT_LARGE);
+            g.setColor(Color.WHITE);
+            text.clear().append("You survived ").append(seconds).append(" seconds").draw(g, width/2 - 170, height/2);
+            text.clear().append("Reached Level ").append(currentLevel).draw(g, width/2 - 110, height/2 + 40);
+            text.clear().append("Materials collected: ").append(collectedMaterialCount).append('/').append(GameSimulation.BOSS_LEVEL - 1).draw(g, width/2 - 150, height/2 + 80);
+            g.drawString("Press SPACE to play again", width/2 - 180, height/2 + 120);
+        }
+
+        return messageImage;
+    }
+
+    // Redraws the HUD layer if survival seconds, lives, level or materials changed since last time
+    private BufferedImage getHud(Graphics2D target, RenderSnapshot sim, int width) {
+        int survivalSeconds = sim.getSurvivalSeconds();
+        int currentLevel = sim.getCurrentLevel();
+        int lives = sim.getLives(), maxLives = sim.getMaxLives();
+        int collectedMaterialCount = sim.getCollectedMaterialCount();
+        boolean isBossLevel = sim.isBossLevel();
+        boolean hasWeapon = sim.hasWeapon();
+        boolean levelMaterialCollected = sim.hasCollectedMaterial(currentLevel);
+
+        if (hudImage != null && hudImage.getWidth() == width
+                && hudSeconds == survivalSeconds && hudLevel == currentLevel && hudLives == lives
+                && hudMaterials == collectedMaterialCount && hudLevelMaterial == levelMaterialCollected
+                && hudBossLevel == isBossLevel && hudWeapon == hasWeapon) {
+            return hudImage;
+        }
+        hudSeconds = survivalSeconds;
+        hudLevel = currentLevel;
+        hudLives = lives;
+        hudMaterials = collectedMaterialCount;
+        hudLevelMaterial = levelMaterialCollected;
+        hudBossLevel = isBossLevel;
+        hudWeapon = hasWeapon;
+        layerRebuilds++;
+
+        if (hudImage == null || hudImage.getWidth() != width) {
+            if (hudGraphics != null) {
+                hudGraphics.dispose();
+            }
+            hudImage = createLayer(target, width, HUD_HEIGHT, Transparency.TRANSLUCENT);
+            hudGraphics = createLayerGraphics(hudImage);
+        }
+        Graphics2D g = hudGraphics;
+        // Start from a fully transparent layer
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, width, HUD_HEIGHT);
+        g.setComposite(AlphaComposite.SrcOver);
+
+        // Draw HUD background
+        g.setColor(HUD_BACKGROUND);
+        g.fillRect(5, 5, 250, 100);
+        g.fillRect(width - 155, 5, 150, 70);
+
+        // Draw survival time
+        g.setColor(Color.WHITE);
+        g.setFont(FONT_MEDIUM);
+        text.clear().append("Survival Time: ").append(survivalSeconds).append('s').draw(g, 10, 25);
+
+        // Draw level information
+        g.setColor(Color.YELLOW);
+        text.clear().append("Level: ").append(currentLevel).draw(g, 10, 50);
+
+        // Special message for boss level
+        if (isBossLevel) {
+            g.setColor(Color.RED);
+            if (hasWeapon) {
+                g.drawString("BOSS LEVEL - WEAPON ACTIVE!", 10, 75);
+            } else {
+                g.drawString("BOSS LEVEL - FIND MATERIALS!", 10, 75);
+            }
+        } else {
+            // Show current material objective
+            String levelMaterial = sim.getMaterialName(currentLevel);
+            if (levelMaterial != null) {
+                if (sim.hasCollectedMaterial(currentLevel)) {
+                    g.setColor(Color.GREEN);
+                    text.clear().append(levelMaterial).append(" - COLLECTED!").draw(g, 10, 75);
+                } else {
+                    g.setColor(Color.ORANGE);
+                    text.clear().append("Find the ").append(levelMaterial).append('!').draw(g, 10, 75);
+                }
+            }
+        }
+
+        // Draw hearts for lives
+        g.setFont(FONT_LARGE);
+        for (int i = 0; i < maxLives; i++) {
+            if (i < lives) {
+                g.setColor(Color.RED);
+            } else {
+                g.setColor(Color.GRAY); // Empty hearts
+            }
+            g.drawString("♥", width - 40 - (i * 40), 30);
+        }
+
+        // Draw collected materials info
+        g.setColor(Color.WHITE);
+        g.setFont(FONT_SMALL);
+        text.clear().append("Materials: ").append(collectedMaterialCount).append('/').append(GameSimulation.BOSS_LEVEL - 1).draw(g, width - 120, 60);
+
+        return hudImage;
+    }
+
+    // Redraws the performance overlay when the stats finish another second
+    private BufferedImage getStatsOverlay(Graphics2D target, RenderSnapshot sim) {
+        if (statsImage != null && statsWindow == stats.getWindow()) {
+            return statsImage;
+        }
+        statsWindow = stats.getWindow();
+        layerRebuilds++;
+
+        if (statsImage == null) {
+            statsImage = createLayer(target, STATS_WIDTH, STATS_HEIGHT, Transparency.TRANSLUCENT);
+            statsGraphics = createLayerGraphics(statsImage);
+        }
+        Graphics2D g = statsGraphics;
+        g.setComposite(AlphaComposite.Src);
+        g.setColor(OVERLAY);
+        g.fillRect(0, 0, STATS_WIDTH, STATS_HEIGHT);
+        g.setComposite(AlphaComposite.SrcOver);
+
+        g.setFont(FONT_STATS);
+        g.setColor(Color.WHITE);
+        text.clear().append("FPS ").append(stats.getFramesPerSecond(), 1)
+                .append("  ticks/s ").append(stats.getTicksPerSecond(), 1)
+                .append(" (rate ").append(sim.getTickRate()).append(')').draw(g, 10, 18);
+
+        // Durations over the last second, in milliseconds
+        g.setColor(Color.LIGHT_GRAY);
+        g.drawString("ms", 10, 38);
+        g.drawString("p50", 130, 38);
+        g.drawString("p99", 195, 38);
+        g.drawString("max", 260, 38);
+        g.setColor(Color.WHITE);
+        for (int kind = 0; kind < PerformanceStats.NAMES.length; kind++) {
+            Histogram histogram = stats.get(kind);
+            int y = 53 + kind * 15;
+            // Simulation phases are indented under the tick they belong to
+            boolean phase = kind == PerformanceStats.MOVEMENT || kind == PerformanceStats.COLLISIONS
+                    || kind == PerformanceStats.PROJECTILES;
+            text.clear().append(phase ? "  " : "").append(PerformanceStats.NAMES[kind]).draw(g, 10, y);
+            text.clear().append(histogram.percentile(0.5) / 1e6, 2).draw(g, 130, y);
+            text.clear().append(histogram.percentile(0.99) / 1e6, 2).draw(g, 195, y);
+            text.clear().append(histogram.max() / 1e6, 2).draw(g, 260, y);
+        }
+
+        text.clear().append("enemies ").append(sim.getEnemies().count())
+                .append("  bosses ").append(sim.getBossRobots().count())
+                .append("  projectiles ").append(sim.getProjectiles().count()).draw(g, 10, 163);
+        text.clear().append("GC ").append(stats.getGcCount()).append(" (").append(stats.getGcMillis()).append(" ms)")
+                .append("  last second ").append(stats.getGcCountInWindow())
+                .append(" (").append(stats.getGcMillisInWindow()).append(" ms)").draw(g, 10, 181);
+
+        return statsImage;
+    }
+
+    // The grid never changes, so it is drawn once per panel size
+    private BufferedImage getBackground(Graphics2D target, int width, int height) {
+        if (background == null || background.getWidth() != width || background.getHeight() != height) {
+            background = createLayer(target, width, height, Transparency.OPAQUE);
+            layerRebuilds++;
+            Graphics2D g = background.createGraphics();
+
+            // Background
+            g.setColor(BACKGROUND); // Darker blue background
+            g.fillRect(0, 0, width, height);
+
+            // Add a grid pattern for visual appeal
+            g.setColor(GRID);
+            for (int i = 0; i < width; i += 30) {
+                g.drawLine(i, 0, i, height);
+                g.drawLine(0, i, width, i);
+            }
+            g.dispose();
+        }
+        return background;
+    }
+
+    private Graphics2D createLayerGraphics(BufferedImage layer) {
+        Graphics2D g = layer.createGraphics();
+        if (layersHighQuality) {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        }
+        return g;
+    }
+
+    private static BufferedImage createLayer(Graphics2D target, int width, int height, int transparency) {
+        GraphicsConfiguration config = target.getDeviceConfiguration();
+        if (config != null) {
+            return config.createCompatibleImage(width, height, transparency);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+}
@@ -0,0 +1,1074 @@
+import java.awt.Color;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+// All of the game rules and world state, with no Swing dependency.
+// The panel (or a headless runner) calls step() once per tick with the current input.
+// Durations are given in seconds and speeds in pixels per second, then converted using the tick rate.
+public class GameSimulation {
+    public static final int WIDTH = 600, HEIGHT = 600;
+    public static final int[] TICK_RATES = {30, 60, 120, 240};
+    public static final int DEFAULT_TICK_RATE = 60;
+
+    // Can change mid-game (setTickRate), together with every duration below that is in ticks
+    private int tickRate;
+    private float tickSeconds;
+
+    private float robotX = 300, robotY = 300;
+    private float prevRobotX = 300, prevRobotY = 300;
+    public static final int ROBOT_SIZE = 30, FOOD_SIZE = 20; // at the start of every game
+    private int robotSize = ROBOT_SIZE;
+    private final float ROBOT_SPEED = 150f; // pixels per second
+
+    // Co-op: a second robot of the same size, steered by a remote player (see CoopServer). It
+    // shares the lives, pickups and weapon, and enemies and bosses go for whichever robot is
+    // nearer. Not part of writeState, so co-op games can't be recorded.
+    private static final float PARTNER_START_X = 340, PARTNER_START_Y = 300;
+    private boolean partnerJoined = false;
+    private float partnerX = PARTNER_START_X, partnerY = PARTNER_START_Y;
+    private float prevPartnerX = PARTNER_START_X, prevPartnerY = PARTNER_START_Y;
+    private int partnerWeaponCooldown = 0;
+    private final InputState idlePartner = new InputState(); // when no partner input came in
+
+    // Entities live in structure-of-arrays stores rather than object lists
+    public static final int TYPE_ENEMY = 0, TYPE_BOSS = 1;
+    public static final int ENEMY_SIZE = 30;
+    public static final int BOSS_SIZE = 90;
+    private static final int BOSS_MIN_SPLIT_SIZE = 30; // bosses this small are destroyed, not split
+    private static final int BOSS_SPLIT_SHRINK = 20;
+    private static final int PROJECTILE_SIZE = 10;
+    private static final float PROJECTILE_SPEED = 240f; // pixels per second
+    private EntityStore enemies = new EntityStore(64);
+    private EntityStore bossRobots = new EntityStore(64);
+
+    private static final int ENEMY_HIT_SHRINK = 6; // enemies only hit the inner part of the player
+
+    // Moves enemies/bosses and finds the one touching the player, in parallel for big swarms
+    private EntityMover mover = EntityMover.fromSystemProperties();
+
+    // Enemies and bosses follow a shared flow field towards the player; recordings made before
+    // it existed replay with the old straight-line steering
+    private final FlowField pursuitField = new FlowField(WIDTH, HEIGHT, FlowField.DEFAULT_CELL_SIZE);
+    private boolean flowFieldPursuit = true;
+
+    // Time spent in each phase of the last tick, only measured while profiling (for the overlay)
+    public static final int PHASE_MOVEMENT = 0, PHASE_COLLISIONS = 1, PHASE_PROJECTILES = 2;
+    private final long[] phaseNanos = new long[3];
+    private boolean profiling = false;
+
+    // Collision broadphase for projectiles against bosses, rebuilt whenever it is queried
+    private static final int GRID_CELL_SIZE = 60;
+    private final SpatialGrid bossGrid = new SpatialGrid(WIDTH, HEIGHT, GRID_CELL_SIZE);
+    private boolean isGameOver = false;
+    private int survivalTime = 0;
+    private final GameRandom random; // the only source of randomness, so a seed fixes the whole game
+    private final long seed;
+    private final Balance balance;
+
+    // Food Item
+    private int foodX = 100, foodY = 100, foodSize = FOOD_SIZE;
+    private boolean foodCollected = false;
+    private int foodRespawnTimer = 0;
+    private int FOOD_RESPAWN_TIME; // 3 seconds
+
+    // Level System
+    private int currentLevel = 1;
+    private int scoreForNextLevel; // 10 seconds for first level
+    public static final int BOSS_LEVEL = 5; // Changed to 5
+    private int BASE_NEXT_LEVEL_SCORE;
+    private int NEXT_LEVEL_SCORE_PER_LEVEL; // 5 more seconds per level
+    private boolean showLevelUpMessage = false;
+    private int levelUpMessageTimer = 0;
+    private int LEVEL_UP_MESSAGE_DURATION; // 2 seconds
+    private boolean isBossLevel = false;
+
+    // Endless swarm mode: no victory, and every level from 2 on sends a wave that doubles in size,
+    // with split-bosses joining from the boss level on. Used as the engine's load test.
+    private boolean swarmMode = false;
+    private boolean invulnerable = false; // load tests only: hits never cost a life
+    private boolean eventsEnabled = true; // off for throwaway worlds, so recordings only show real play
+
+    // Scales how many enemies each level has; can be tuned live over JMX (through GameLoop, between
+    // ticks), applies from the next level up or restart. Bounded so a typo can't ask for billions.
+    public static final float MAX_ENEMY_COUNT_MULTIPLIER = 100;
+    private float enemyCountMultiplier = 1;
+    private static final int SWARM_FIRST_WAVE = 20;
+    private static final int SWARM_MAX_ENTITIES = 50_000;
+    private static final int SWARM_BOSS_SIZE = 50;
+
+    // Materials collection system
+    private Material[] materials = new Material[BOSS_LEVEL]; // indexed by level, 1-4
+    private Material currentMaterial = null;
+    private boolean materialCollected = false;
+    private int collectedMaterials = 0; // bit n set = material of level n collected
+
+    // Player powerups based on materials
+    private boolean hasWeapon = false;
+    private int weaponCooldown = 0;
+    private int WEAPON_COOLDOWN_TIME; // 1 second
+    private EntityStore projectiles = new EntityStore(64); // type is the colour material, 0 = default red
+    private static final Color DEFAULT_PROJECTILE_COLOR = new Color(255, 0, 0);
+
+    // What each level's material (1-4) is called and looks like; the same in every game, only
+    // where it lies differs, so sprites and clients can read them without a simulation
+    private static final String[] MATERIAL_NAMES = {null, "Power Core", "Shield Module", "Laser Emitter", "Turbo Engine"};
+    private static final Color[] MATERIAL_COLORS = {null, new Color(255, 50, 50), new Color(50, 50, 255),
+            new Color(50, 255, 50), new Color(255, 255, 50)};
+
+    // Player lives
+    private int lives = 3; // Start with 3 lives
+    private int maxLives = 3; // Maximum lives
+    private int invincibilityTimer = 0; // Player is invincible after being hit
+    private int INVINCIBILITY_TIME; // 2 seconds
+
+    // Countdown for game start
+    private int countdown; // 3 seconds
+    private boolean gameStarted = false;
+    private boolean showGoScreen = false;
+    private int goScreenCounter; // 1 second
+
+    public GameSimulation() {
+        this(DEFAULT_TICK_RATE);
+    }
+
+    public GameSimulation(int tickRate) {
+        this(tickRate, new Random().nextLong());
+    }
+
+    // Two simulations with the same seed and the same inputs play out identically
+    public GameSimulation(int tickRate, long seed) {
+        this(tickRate, seed, new Balance());
+    }
+
+    // With other balance numbers than the defaults, for BalanceHarness
+    public GameSimulation(int tickRate, long seed, Balance balance) {
+        if (!isSupportedTickRate(tickRate)) {
+            throw new IllegalArgumentException("Unsupported tick rate: " + tickRate);
+        }
+        this.seed = seed;
+        this.random = new GameRandom(seed);
+        this.balance = balance;
+        applyTickRate(tickRate);
+        countdown = ticks(3);
+        goScreenCounter = ticks(1);
+        scoreForNextLevel = BASE_NEXT_LEVEL_SCORE;
+
+        // Initialize materials for levels 1-4
+        initializeMaterials();
+
+        // Initialize enemies and food
+        spawnEnemies(getEnemyCountForLevel(currentLevel));
+        resetFood();
+        spawnMaterial();
+    }
+
+    private void initializeMaterials() {
+        for (int level = 1; level < BOSS_LEVEL; level++) {
+            materials[level] = new Material(MATERIAL_NAMES[level], MATERIAL_COLORS[level]);
+        }
+    }
+
+    private void spawnMaterial() {
+        // Only spawn material if we're not at the boss level and haven't collected this level's material
+        if (currentLevel < BOSS_LEVEL && !hasCollectedMaterial(currentLevel)) {
+            currentMaterial = materials[currentLevel];
+            materialCollected = false;
+
+            // Make sure material doesn't spawn too close to the player or food
+            int x, y;
+            do {
+                x = random.nextInt(500) + 50;
+                y = random.nextInt(500) + 50;
+            } while (isCloseToPlayer(x, y) || isCloseToFood(x, y));
+
+            currentMaterial.x = x;
+            currentMaterial.y = y;
+        } else {
+            currentMaterial = null;
+        }
+    }
+
+    // Convert real-time durations into ticks at this rate
+    private void applyTickRate(int rate) {
+        tickRate = rate;
+        tickSeconds = 1.0f / rate;
+        FOOD_RESPAWN_TIME = ticks(3);
+        BASE_NEXT_LEVEL_SCORE = ticks(balance.firstLevelSeconds);
+        NEXT_LEVEL_SCORE_PER_LEVEL = ticks(balance.levelSecondsPerLevel);
+        LEVEL_UP_MESSAGE_DURATION = ticks(2);
+        WEAPON_COOLDOWN_TIME = ticks(1);
+        INVINCIBILITY_TIME = ticks(2);
+    }
+
+    // Switches to another tick rate mid-game. Running timers are rescaled so each keeps the same
+    // real time left (to within a tick), and the game carries on as if it had always run this fast.
+    // Call between ticks, from the thread that steps the simulation (GameLoop does).
+    public void setTickRate(int rate) {
+        if (!isSupportedTickRate(rate)) {
+            throw new IllegalArgumentException("Unsupported tick rate: " + rate);
+        }
+        int oldRate = tickRate;
+        if (rate == oldRate) {
+            return;
+        }
+        applyTickRate(rate);
+        countdown = rescale(countdown, oldRate);
+        goScreenCounter = rescale(goScreenCounter, oldRate);
+        survivalTime = rescale(survivalTime, oldRate);
+        scoreForNextLevel = rescale(scoreForNextLevel, oldRate);
+        levelUpMessageTimer = rescale(levelUpMessageTimer, oldRate);
+        foodRespawnTimer = rescale(foodRespawnTimer, oldRate);
+        weaponCooldown = rescale(weaponCooldown, oldRate);
+        invincibilityTimer = rescale(invincibilityTimer, oldRate);
+    }
+
+    private int rescale(int ticks, int oldRate) {
+        return (int) Math.round((double) ticks * tickRate / oldRate);
+    }
+
+    public static boolean isSupportedTickRate(int rate) {
+        for (int supported : TICK_RATES) {
+            if (supported == rate) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Number of ticks that last the given number of seconds
+    public int ticks(double seconds) {
+        return (int) Math.round(seconds * tickRate);
+    }
+
+    private boolean isCloseToPlayer(int x, int y) {
+        int distance = (int) Math.sqrt(Math.pow(x - robotX, 2) + Math.pow(y - robotY, 2));
+        return distance < 100; // Keep material at least 100 pixels from player
+    }
+
+    private boolean isCloseToFood(int x, int y) {
+        int distance = (int) Math.sqrt(Math.pow(x - foodX, 2) + Math.pow(y - foodY, 2));
+        return distance < 80; // Keep material at least 80 pixels from food
+    }
+
+    private int getEnemyCountForLevel(int level) {
+        if (level == BOSS_LEVEL) {
+            return 0; // No regular enemies in boss level
+        }
+        // Level 1: 5 enemies, level 2: 7 enemies, level 3: 9 enemies, etc.
+        return Math.round((balance.enemyBaseCount + (level * balance.enemiesPerLevel)) * enemyCountMultiplier);
+    }
+
+    private float getEnemySpeedForLevel(int level) {
+        // Base speed increases with level (pixels per second)
+        return balance.enemyBaseSpeed + (level * balance.enemySpeedPerLevel) + random.nextFloat() * balance.enemySpeedSpread;
+    }
+
+    private void levelUp() {
+        currentLevel++;
+        showLevelUpMessage = true;
+        levelUpMessageTimer = LEVEL_UP_MESSAGE_DURATION;
+
+        // Check if we've reached the boss level
+        if (currentLevel == BOSS_LEVEL) {
+            isBossLevel = true;
+            // Clear all regular enemies (the swarm keeps coming)
+            if (!swarmMode) {
+                enemies.clear();
+            }
+            // Spawn boss robot
+            spawnBossRobot();
+
+            // Enable weapon if player has collected all materials
+            hasWeapon = getCollectedMaterialCount() >= BOSS_LEVEL - 1;
+        } else {
+            // Add new enemies based on the new level
+            if (!isBossLevel) {
+                int currentEnemyCount = enemies.count();
+                int newEnemyCount = getEnemyCountForLevel(currentLevel);
+
+                // Add new enemies if needed
+                for (int i = currentEnemyCount; i < newEnemyCount; i++) {
+                    spawnEnemy();
+                }
+
+                // Power up existing enemies
+                for (int i = 0; i < enemies.count(); i++) {
+                    enemies.speed[i] = getEnemySpeedForLevel(currentLevel);
+                }
+
+                // Spawn new material for this level
+                spawnMaterial();
+            }
+        }
+
+        if (swarmMode) {
+            spawnSwarmWave();
+        }
+
+        // Calculate score needed for next level (increases with each level)
+        scoreForNextLevel = BASE_NEXT_LEVEL_SCORE + (currentLevel * NEXT_LEVEL_SCORE_PER_LEVEL);
+
+        // Give player a bonus life when leveling up (if not at max)
+        if (lives < maxLives) {
+            lives++;
+        }
+        if (eventsEnabled) {
+            GameEvents.levelUp(currentLevel, enemies.count(), bossRobots.count());
+        }
+    }
+
+    private void spawnEnemies(int count) {
+        enemies.clear();
+        for (int i = 0; i < count; i++) {
+            spawnEnemy();
+        }
+    }
+
+    private void spawnEnemy() {
+        // Initialize with speed based on current level
+        float speed = getEnemySpeedForLevel(currentLevel);
+        int index = enemies.add(0, 0, ENEMY_SIZE, speed, TYPE_ENEMY);
+        placeAtEdge(enemies, index);
+    }
+
+    // Extra enemies on top of the level's own, for stress runs (ignored in the boss level,
+    // except in swarm mode)
+    public void addEnemies(int count) {
+        if (isBossLevel && !swarmMode) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            spawnEnemy();
+        }
+    }
+
+    // Enemies double every level; from the boss level on, split-bosses double as well
+    private void spawnSwarmWave() {
+        int room = SWARM_MAX_ENTITIES - enemies.count() - bossRobots.count();
+        int waveEnemies = Math.min(room, SWARM_FIRST_WAVE << Math.min(currentLevel - 2, 20));
+        addEnemies(waveEnemies);
+        if (currentLevel >= BOSS_LEVEL) {
+            int waveBosses = Math.min(room - waveEnemies, 1 << Math.min(currentLevel - BOSS_LEVEL, 20));
+            for (int i = 0; i < waveBosses; i++) {
+                int index = bossRobots.add(0, 0, SWARM_BOSS_SIZE, getSplitBossSpeed(SWARM_BOSS_SIZE), TYPE_BOSS);
+                placeAtEdge(bossRobots, index);
+            }
+        }
+    }
+
+    private void spawnBossRobot() {
+        // Create a large boss robot
+        int index = bossRobots.add(0, 0, BOSS_SIZE, balance.bossSpeed, TYPE_BOSS);
+        placeAtEdge(bossRobots, index);
+    }
+
+    // Puts a new entity just outside a random edge of the screen
+    private void placeAtEdge(EntityStore store, int index) {
+        int size = store.size[index];
+        float x, y;
+        if (random.nextBoolean()) {
+            // Spawn on left or right edge
+            x = random.nextBoolean() ? -size : WIDTH;
+            y = random.nextInt(HEIGHT);
+        } else {
+            // Spawn on top or bottom edge
+            x = random.nextInt(WIDTH);
+            y = random.nextBoolean() ? -size : HEIGHT;
+        }
+        store.x[index] = store.prevX[index] = x;
+        store.y[index] = store.prevY[index] = y;
+    }
+
+    private void resetFood() {
+        // Make sure food doesn't spawn too close to the player
+        foodX = random.nextInt(500) + 50;  // Keep away from edges
+        foodY = random.nextInt(500) + 50;  // Keep away from edges
+        foodCollected = false;
+    }
+
+    public void resetGame() {
+        if (eventsEnabled) {
+            GameEvents.gameReset(survivalTime, currentLevel);
+        }
+        robotX = prevRobotX = 300;
+        robotY = prevRobotY = 300;
+        placePartnerAtStart();
+        lives = 3;
+        survivalTime = 0;
+        currentLevel = 1;
+        scoreForNextLevel = BASE_NEXT_LEVEL_SCORE;
+        isGameOver = false;
+        foodCollected = false;
+        isBossLevel = false;
+        hasWeapon = false;
+        enemies.clear();
+        bossRobots.clear();
+        projectiles.clear();
+        collectedMaterials = 0;
+        resetFood();
+        spawnEnemies(getEnemyCountForLevel(currentLevel));
+        spawnMaterial();
+    }
+
+    // A partner joining appears next to the start position; one leaving is just no longer there
+    public void setPartnerJoined(boolean joined) {
+        if (joined && !partnerJoined) {
+            placePartnerAtStart();
+        }
+        partnerJoined = joined;
+    }
+
+    private void placePartnerAtStart() {
+        partnerX = prevPartnerX = PARTNER_START_X;
+        partnerY = prevPartnerY = PARTNER_START_Y;
+        partnerWeaponCooldown = 0;
+    }
+
+    // Turns on endless swarm mode; the waves start with the next level up
+    public void setSwarmMode(boolean swarmMode) {
+        this.swarmMode = swarmMode;
+    }
+
+    public void setEnemyCountMultiplier(float multiplier) {
+        checkEnemyCountMultiplier(multiplier);
+        enemyCountMultiplier = multiplier;
+    }
+
+    public static void checkEnemyCountMultiplier(float multiplier) {
+        // Written so NaN fails too
+        if (!(multiplier >= 0 && multiplier <= MAX_ENEMY_COUNT_MULTIPLIER)) {
+            throw new IllegalArgumentException("Enemy count multiplier must be 0 to " + MAX_ENEMY_COUNT_MULTIPLIER + ": " + multiplier);
+        }
+    }
+
+    public float getEnemyCountMultiplier() {
+        return enemyCountMultiplier;
+    }
+
+    // Turns the GameEvents flight recorder events off for a world that isn't really being played
+    // (e.g. Warmup's), so a recording doesn't show its ticks, level ups and lost lives
+    public void setEventsEnabled(boolean eventsEnabled) {
+        this.eventsEnabled = eventsEnabled;
+    }
+
+    // Lets a load test keep climbing levels however often the player is hit
+    public void setInvulnerable(boolean invulnerable) {
+        this.invulnerable = invulnerable;
+    }
+
+    public boolean isInvulnerable() {
+        return invulnerable;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // Measures how long each phase of a tick takes, see getPhaseNanos
+    public void setProfiling(boolean profiling) {
+        this.profiling = profiling;
+        Arrays.fill(phaseNanos, 0);
+    }
+
+    public void setFlowFieldPursuit(boolean flowFieldPursuit) {
+        this.flowFieldPursuit = flowFieldPursuit;
+    }
+
+    public boolean isFlowFieldPursuit() {
+        return flowFieldPursuit;
+    }
+
+    // Replaces how enemies and bosses are moved, e.g. to force the serial path
+    public void setEntityMover(EntityMover mover) {
+        this.mover = mover;
+    }
+
+    // Skips the countdown and GO screen so the next tick is already gameplay (headless runs)
+    public void skipCountdown() {
+        countdown = 0;
+        gameStarted = true;
+        showGoScreen = false;
+    }
+
+    // Levels up until the given level, collecting each level's material on the way
+    public void jumpToLevel(int level) {
+        while (currentLevel < level) {
+            if (currentLevel < BOSS_LEVEL) {
+                collectedMaterials |= 1 << currentLevel;
+            }
+            levelUp();
+        }
+    }
+
+    // Every size a boss can have: the boss level's and swarm mode's, and all their splits
+    public static int[] getBossSizes() {
+        boolean[] possible = new boolean[BOSS_SIZE + 1];
+        for (int size : new int[] {BOSS_SIZE, SWARM_BOSS_SIZE}) {
+            for (; size > 0; size -= BOSS_SPLIT_SHRINK) {
+                possible[size] = true;
+                if (size <= BOSS_MIN_SPLIT_SIZE) {
+                    break;
+                }
+            }
+        }
+        int[] sizes = new int[BOSS_SIZE + 1];
+        int count = 0;
+        for (int size = 0; size <= BOSS_SIZE; size++) {
+            if (possible[size]) {
+                sizes[count++] = size;
+            }
+        }
+        return Arrays.copyOf(sizes, count);
+    }
+
+    // Everything besides the entity stores that writeState saves
+    private static final int STATE_BYTES = 139;
+
+    // Bytes writeState needs right now
+    public int stateSize() {
+        return STATE_BYTES + enemies.stateSize() + bossRobots.stateSize() + projectiles.stateSize();
+    }
+
+    // Saves the whole game, including the random generator, to a replay keyframe. readState on
+    // any simulation puts it exactly here: the same inputs from then on play out the same.
+    // Only the seed it was created with isn't restored, as nothing reads it during play.
+    public void writeState(ByteBuffer out) {
+        out.putInt(tickRate).putLong(random.getState());
+        out.putFloat(robotX).putFloat(robotY).putFloat(prevRobotX).putFloat(prevRobotY).putInt(robotSize);
+        putBoolean(out, isGameOver);
+        out.putInt(survivalTime);
+        out.putInt(foodX).putInt(foodY).putInt(foodSize);
+        putBoolean(out, foodCollected);
+        out.putInt(foodRespawnTimer);
+        out.putInt(currentLevel).putInt(scoreForNextLevel);
+        putBoolean(out, showLevelUpMessage);
+        out.putInt(levelUpMessageTimer);
+        putBoolean(out, isBossLevel);
+        putBoolean(out, swarmMode);
+        putBoolean(out, invulnerable);
+        out.putFloat(enemyCountMultiplier);
+        int current = 0;
+        for (int level = 1; level < BOSS_LEVEL; level++) {
+            if (materials[level] == currentMaterial) {
+                current = level;
+            }
+        }
+        out.put((byte) current);
+        for (int level = 1; level < BOSS_LEVEL; level++) {
+            out.putInt(materials[level].x).putInt(materials[level].y);
+        }
+        putBoolean(out, materialCollected);
+        out.putInt(collectedMaterials);
+        putBoolean(out, hasWeapon);
+        out.putInt(weaponCooldown);
+        out.putInt(lives).putInt(maxLives).putInt(invincibilityTimer);
+        out.putInt(countdown);
+        putBoolean(out, gameStarted);
+        putBoolean(out, showGoScreen);
+        out.putInt(goScreenCounter);
+        enemies.writeState(out);
+        bossRobots.writeState(out);
+        projectiles.writeState(out);
+    }
+
+    public void readState(ByteBuffer in) {
+        applyTickRate(in.getInt());
+        random.setState(in.getLong());
+        robotX = in.getFloat();
+        robotY = in.getFloat();
+        prevRobotX = in.getFloat();
+        prevRobotY = in.getFloat();
+        robotSize = in.getInt();
+        isGameOver = in.get() != 0;
+        survivalTime = in.getInt();
+        foodX = in.getInt();
+        foodY = in.getInt();
+        foodSize = in.getInt();
+        foodCollected = in.get() != 0;
+        foodRespawnTimer = in.getInt();
+        currentLevel = in.getInt();
+        scoreForNextLevel = in.getInt();
+        showLevelUpMessage = in.get() != 0;
+        levelUpMessageTimer = in.getInt();
+        isBossLevel = in.get() != 0;
+        swarmMode = in.get() != 0;
+        invulnerable = in.get() != 0;
+        enemyCountMultiplier = in.getFloat();
+        checkEnemyCountMultiplier(enemyCountMultiplier);
+        int current = in.get();
+        currentMaterial = current > 0 ? materials[current] : null;
+        for (int level = 1; level < BOSS_LEVEL; level++) {
+            materials[level].x = in.getInt();
+            materials[level].y = in.getInt();
+        }
+        materialCollected = in.get() != 0;
+        collectedMaterials = in.getInt();
+        hasWeapon = in.get() != 0;
+        weaponCooldown = in.getInt();
+        lives = in.getInt();
+        maxLives = in.getInt();
+        invincibilityTimer = in.getInt();
+        countdown = in.getInt();
+        gameStarted = in.get() != 0;
+        showGoScreen = in.get() != 0;
+        goScreenCounter = in.getInt();
+        enemies.readState(in);
+        bossRobots.readState(in);
+        projectiles.readState(in);
+    }
+
+    private static void putBoolean(ByteBuffer out, boolean value) {
+        out.put(value ? (byte) 1 : (byte) 0);
+    }
+
+    // Advances the world by one tick
+    public void step(InputState input) {
+        step(input, null);
+    }
+
+    // The same in co-op, with the partner's input for this tick (null for no keys)
+    public void step(InputState input, InputState partnerInput) {
+        GameEvents.TickEvent event = eventsEnabled ? GameEvents.beginTick() : null;
+        tick(input, partnerInput != null ? partnerInput : idlePartner);
+        if (event != null) {
+            GameEvents.endTick(event, this);
+        }
+    }
+
+    private void tick(InputState input, InputState partnerInput) {
+        if (isGameOver && (input.restart || (partnerJoined && partnerInput.restart))) {
+            resetGame();
+        }
+
+        if (!gameStarted) {
+            countdown--;
+            if (countdown <= 0) {
+                gameStarted = true;
+                showGoScreen = true;
+            }
+        } else if (showGoScreen) {
+            goScreenCounter--;
+            if (goScreenCounter <= 0) {
+                showGoScreen = false;
+            }
+        } else if (!isGameOver) {
+            long time = startPhases();
+            savePreviousPositions();
+            moveRobot(input);
+            if (partnerJoined) {
+                movePartner(partnerInput);
+            }
+
+            // Handle invincibility timer
+            if (invincibilityTimer > 0) {
+                invincibilityTimer--;
+            }
+
+            // Handle weapon cooldown
+            if (weaponCooldown > 0) {
+                weaponCooldown--;
+            }
+            if (partnerWeaponCooldown > 0) {
+                partnerWeaponCooldown--;
+            }
+
+            // Handle level up message timer
+            if (showLevelUpMessage) {
+                levelUpMessageTimer--;
+                if (levelUpMessageTimer <= 0) {
+                    showLevelUpMessage = false;
+                }
+            }
+
+            // Fire weapon if available (in boss level)
+            if (isBossLevel && hasWeapon && weaponCooldown <= 0 && input.anyDirection()) {
+                fireWeapon(input, robotX, robotY);
+                weaponCooldown = WEAPON_COOLDOWN_TIME;
+            }
+            if (partnerJoined && isBossLevel && hasWeapon && partnerWeaponCooldown <= 0 && partnerInput.anyDirection()) {
+                fireWeapon(partnerInput, partnerX, partnerY);
+                partnerWeaponCooldown = WEAPON_COOLDOWN_TIME;
+            }
+
+            // One field towards the player (or the nearer robot in co-op) for every enemy and boss this tick
+            FlowField field = null;
+            if (flowFieldPursuit && !(enemies.isEmpty() && bossRobots.isEmpty())) {
+                if (partnerJoined) {
+                    pursuitField.build(robotX, robotY, partnerX, partnerY);
+                } else {
+                    pursuitField.build(robotX, robotY);
+                }
+                field = pursuitField;
+            }
+            time = endPhase(PHASE_MOVEMENT, time);
+
+            // Update projectiles
+            updateProjectiles();
+            time = endPhase(PHASE_PROJECTILES, time);
+
+            // Bosses (only in the boss level, or any level of swarm mode): move every boss,
+            // finding the newest one touching the player
+            if (!bossRobots.isEmpty()) {
+                int hit = mover.moveAndCollide(bossRobots, field, robotX, robotY, tickSeconds,
+                        robotX, robotY, robotX + robotSize, robotY + robotSize);
+                if (hit < 0 && partnerJoined) {
+                    hit = EntityMover.collide(bossRobots, partnerX, partnerY, partnerX + robotSize, partnerY + robotSize);
+                }
+                time = endPhase(PHASE_MOVEMENT, time);
+
+                if (invincibilityTimer <= 0 && hit >= 0) {
+                    // When player collides with boss robot
+                    splitBossRobot(hit);
+                    loseLife();
+                    invincibilityTimer = INVINCIBILITY_TIME;
+                }
+            }
+
+            // Check if all boss robots have been defeated to win the game
+            if (isBossLevel && bossRobots.isEmpty() && !swarmMode) {
+                // Game completed
+                isGameOver = true;
+            }
+            time = endPhase(PHASE_COLLISIONS, time);
+
+            // Regular enemies: tested against a smaller, more forgiving hitbox
+            if (!enemies.isEmpty()) {
+                float hitX = robotX + ENEMY_HIT_SHRINK, hitY = robotY + ENEMY_HIT_SHRINK;
+                int hitSize = robotSize - ENEMY_HIT_SHRINK * 2;
+                int hit = mover.moveAndCollide(enemies, field, robotX, robotY, tickSeconds,
+                        hitX, hitY, hitX + hitSize, hitY + hitSize);
+                if (hit < 0 && partnerJoined) {
+                    float partnerHitX = partnerX + ENEMY_HIT_SHRINK, partnerHitY = partnerY + ENEMY_HIT_SHRINK;
+                    hit = EntityMover.collide(enemies, partnerHitX, partnerHitY, partnerHitX + hitSize, partnerHitY + hitSize);
+                }
+                time = endPhase(PHASE_MOVEMENT, time);
+
+                // Only process one collision at a time
+                if (invincibilityTimer <= 0 && hit >= 0) {
+                    loseLife();
+                    invincibilityTimer = INVINCIBILITY_TIME;
+                }
+            }
+
+            // Check if player (or partner) collects the food
+            if (!foodCollected && (touches(robotX, robotY, foodX, foodY, foodSize)
+                    || (partnerJoined && touches(partnerX, partnerY, foodX, foodY, foodSize)))) {
+                foodCollected = true;
+                restoreLife();
+                if (eventsEnabled) {
+                    GameEvents.pickup("food", currentLevel);
+                }
+                foodRespawnTimer = FOOD_RESPAWN_TIME;
+            }
+
+            // Check if player collects the material
+            if (currentMaterial != null && !materialCollected && (touches(robotX, robotY, currentMaterial.x, currentMaterial.y, 25)
+                    || (partnerJoined && touches(partnerX, partnerY, currentMaterial.x, currentMaterial.y, 25)))) {
+                materialCollected = true;
+                collectedMaterials |= 1 << currentLevel;
+                if (eventsEnabled) {
+                    GameEvents.pickup(currentMaterial.name, currentLevel);
+                }
+                currentMaterial = null;
+            }
+
+            // Handle food respawn
+            if (foodCollected) {
+                foodRespawnTimer--;
+                if (foodRespawnTimer <= 0) {
+                    resetFood();
+                }
+            }
+
+            survivalTime++;
+
+            // Check for level up - only level up if material is collected for current level
+            if (survivalTime % scoreForNextLevel == 0 && survivalTime > 0) {
+                if (currentLevel < BOSS_LEVEL) {
+                    // Only level up if material is collected
+                    if (hasCollectedMaterial(currentLevel)) {
+                        levelUp();
+                    }
+                } else {
+                    levelUp();
+                }
+            }
+            endPhase(PHASE_COLLISIONS, time);
+        }
+    }
+
+    // Whether a robot at (x, y) overlaps a pickup of the given size at (itemX, itemY)
+    private boolean touches(float x, float y, int itemX, int itemY, int itemSize) {
+        return x < itemX + itemSize && x + robotSize > itemX && y < itemY + itemSize && y + robotSize > itemY;
+    }
+
+    // Phase timing: the hit tests against the player run inside the movement pass (see
+    // EntityMover), so "collisions" is what follows from them plus pickups and level-ups
+    private long startPhases() {
+        if (!profiling) {
+            return 0;
+        }
+        Arrays.fill(phaseNanos, 0);
+        return System.nanoTime();
+    }
+
+    // Adds the time since the last mark to a phase and returns the new mark
+    private long endPhase(int phase, long since) {
+        if (!profiling) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        phaseNanos[phase] += now - since;
+        return now;
+    }
+
+    // Remember where everything was before this tick so renderers can interpolate
+    private void savePreviousPositions() {
+        prevRobotX = robotX;
+        prevRobotY = robotY;
+        prevPartnerX = partnerX;
+        prevPartnerY = partnerY;
+        enemies.savePreviousPositions();
+        bossRobots.savePreviousPositions();
+        projectiles.savePreviousPositions();
+    }
+
+    // Fires from the robot at (x, y)
+    private void fireWeapon(InputState input, float x, float y) {
+        // Determine firing direction
+        int dirX = 0;
+        int dirY = 0;
+
+        if (input.up) dirY = -1;
+        if (input.down) dirY = 1;
+        if (input.left) dirX = -1;
+        if (input.right) dirX = 1;
+
+        // Don't fire if no direction is pressed
+        if (dirX == 0 && dirY == 0) return;
+
+        // Get material-based colors
+        int colorMaterial = 0; // Default red
+
+        if (hasCollectedMaterial(1)) {
+            colorMaterial = 1; // Power Core color
+        } else if (hasCollectedMaterial(3)) {
+            colorMaterial = 3; // Laser Emitter color
+        }
+
+        // Create new projectile
+        int index = projectiles.add(
+                x + robotSize/2 - 5,
+                y + robotSize/2 - 5,
+                PROJECTILE_SIZE, PROJECTILE_SPEED, colorMaterial);
+        projectiles.vx[index] = dirX * PROJECTILE_SPEED;
+        projectiles.vy[index] = dirY * PROJECTILE_SPEED;
+    }
+
+    // Package-private (like splitBossRobot) so the benchmarks in bench/ can time it alone
+    void updateProjectiles() {
+        // Update and check collisions for projectiles
+        if (!projectiles.isEmpty()) {
+            bossGrid.build(bossRobots);
+        }
+
+        // Walking backwards means a swap-remove only ever pulls in an already updated projectile
+        for (int i = projectiles.count() - 1; i >= 0; i--) {
+            projectiles.x[i] += projectiles.vx[i] * tickSeconds;
+            projectiles.y[i] += projectiles.vy[i] * tickSeconds;
+            float px = projectiles.x[i], py = projectiles.y[i];
+
+            // Remove if out of bounds
+            if (px < 0 || px > WIDTH || py < 0 || py > HEIGHT) {
+                projectiles.remove(i);
+                continue;
+            }
+
+            // Check collision with nearby boss robots, hitting the newest one if several overlap
+            int hit = -1;
+            int candidates = bossGrid.query(px, py, px + PROJECTILE_SIZE, py + PROJECTILE_SIZE);
+            for (int k = 0; k < candidates; k++) {
+                int j = bossGrid.result(k);
+                if (j > hit && projectileCollidesWith(i, bossRobots.x[j], bossRobots.y[j], bossRobots.size[j])) {
+                    hit = j;
+                }
+            }
+            if (hit >= 0) {
+                // Hit the boss, split it
+                splitBossRobot(hit);
+                projectiles.remove(i);
+                bossGrid.build(bossRobots); // the split moved boss indices around
+            }
+        }
+    }
+
+    void splitBossRobot(int index) {
+        float x = bossRobots.x[index], y = bossRobots.y[index];
+        int size = bossRobots.size[index];
+
+        // Remove the original boss
+        bossRobots.remove(index);
+
+        // Create two new smaller bosses if the original boss is big enough
+        if (size > BOSS_MIN_SPLIT_SIZE) {
+            int newSize = size - BOSS_SPLIT_SHRINK;
+
+            // Create first split boss
+            addSplitBoss(x - newSize, y - newSize, newSize);
+
+            // Create second split boss
+            addSplitBoss(x + newSize, y + newSize, newSize);
+        }
+        if (eventsEnabled) {
+            GameEvents.bossSplit(size, size <= BOSS_MIN_SPLIT_SIZE, bossRobots.count());
+        }
+    }
+
+    private void addSplitBoss(float x, float y, int size) {
+        float speed = getSplitBossSpeed(size);
+
+        // Make sure boss stays within screen bounds
+        x = Math.max(-size/2, Math.min(x, WIDTH - size/2));
+        y = Math.max(-size/2, Math.min(y, HEIGHT - size/2));
+        bossRobots.add(x, y, size, speed, TYPE_BOSS);
+    }
+
+    // Split bosses are faster
+    private float getSplitBossSpeed(int size) {
+        return balance.splitBossBaseSpeed + (90.0f - size);
+    }
+
+    private boolean projectileCollidesWith(int i, float targetX, float targetY, int targetSize) {
+        float x = projectiles.x[i], y = projectiles.y[i];
+        return (x < targetX + targetSize &&
+                x + PROJECTILE_SIZE > targetX &&
+                y < targetY + targetSize &&
+                y + PROJECTILE_SIZE > targetY);
+    }
+
+    private void moveRobot(InputState input) {
+        float speed = getRobotStep();
+
+        if (input.up) robotY -= speed;
+        if (input.down) robotY += speed;
+        if (input.left) robotX -= speed;
+        if (input.right) robotX += speed;
+
+        // Stay inside screen
+        robotX = Math.max(0, Math.min(robotX, WIDTH - robotSize));
+        robotY = Math.max(0, Math.min(robotY, HEIGHT - robotSize));
+    }
+
+    private void movePartner(InputState input) {
+        float speed = getRobotStep();
+        if (input.up) partnerY -= speed;
+        if (input.down) partnerY += speed;
+        if (input.left) partnerX -= speed;
+        if (input.right) partnerX += speed;
+        partnerX = Math.max(0, Math.min(partnerX, WIDTH - robotSize));
+        partnerY = Math.max(0, Math.min(partnerY, HEIGHT - robotSize));
+    }
+
+    // Pixels a robot moves this tick
+    private float getRobotStep() {
+        float speed = ROBOT_SPEED * tickSeconds;
+
+        // Increase speed if player has the Turbo Engine material in boss level
+        if (isBossLevel && hasCollectedMaterial(4)) {
+            speed = speed * 3 / 2; // 50% speed boost
+        }
+        return speed;
+    }
+
+    private void loseLife() {
+        if (invulnerable) {
+            return;
+        }
+
+        // If player has Shield Module, have a chance to block damage
+        if (isBossLevel && hasCollectedMaterial(2) && random.nextInt(10) < balance.shieldBlocksInTen) {
+            // 30% chance to block damage (by default)
+            if (eventsEnabled) {
+                GameEvents.lifeLost(lives, true);
+            }
+            return;
+        }
+
+        lives--;
+        if (eventsEnabled) {
+            GameEvents.lifeLost(lives, false);
+        }
+        if (lives <= 0) {
+            isGameOver = true;
+        }
+    }
+
+    private void restoreLife() {
+        if (lives < maxLives) {
+            lives++;
+        }
+    }
+
+    // Read-only view of the world for renderers and headless drivers
+    public int getTickRate() { return tickRate; }
+    public long getPhaseNanos(int phase) { return phaseNanos[phase]; }
+    public float getRobotX() { return robotX; }
+    public float getRobotY() { return robotY; }
+    public float getPrevRobotX() { return prevRobotX; }
+    public float getPrevRobotY() { return prevRobotY; }
+    public int getRobotSize() { return robotSize; }
+    public boolean isPartnerJoined() { return partnerJoined; }
+    public float getPartnerX() { return partnerX; }
+    public float getPartnerY() { return partnerY; }
+    public float getPrevPartnerX() { return prevPartnerX; }
+    public float getPrevPartnerY() { return prevPartnerY; }
+    public EntityStore getEnemies() { return enemies; }
+    public EntityStore getBossRobots() { return bossRobots; }
+    public EntityStore getProjectiles() { return projectiles; }
+    public static Color getProjectileColor(int type) { return type == 0 ? DEFAULT_PROJECTILE_COLOR : MATERIAL_COLORS[type]; }
+    public boolean isGameOver() { return isGameOver; }
+    public boolean isVictory() { return isGameOver && isBossLevel && bossRobots.isEmpty() && !swarmMode; }
+    public boolean isSwarmMode() { return swarmMode; }
+    public int getSurvivalTime() { return survivalTime; }
+    public int getSurvivalSeconds() { return survivalTime / tickRate; }
+    public int getFoodX() { return foodX; }
+    public int getFoodY() { return foodY; }
+    public int getFoodSize() { return foodSize; }
+    public boolean isFoodCollected() { return foodCollected; }
+    public int getCurrentLevel() { return currentLevel; }
+    public int getScoreForNextLevel() { return scoreForNextLevel; }
+    public boolean isShowLevelUpMessage() { return showLevelUpMessage; }
+    public boolean isBossLevel() { return isBossLevel; }
+    public static String getMaterialName(int level) { return level > 0 && level < BOSS_LEVEL ? MATERIAL_NAMES[level] : null; }
+    public static Color getMaterialColor(int level) { return level > 0 && level < BOSS_LEVEL ? MATERIAL_COLORS[level] : null; }
+    public Material getMaterial(int level) { return level > 0 && level < materials.length ? materials[level] : null; }
+    public Material getCurrentMaterial() { return materialCollected ? null : currentMaterial; }
+    public boolean hasCollectedMaterial(int level) { return level < 32 && (collectedMaterials & (1 << level)) != 0; }
+    public int getCollectedMaterialCount() { return Integer.bitCount(collectedMaterials); }
+    public boolean hasWeapon() { return hasWeapon; }
+    public int getLives() { return lives; }
+    public int getMaxLives() { return maxLives; }
+    public int getInvincibilityTimer() { return invincibilityTimer; }
+    public int getCountdown() { return countdown; }
+    public int getCountdownSeconds() { return countdown / tickRate + 1; }
+    public boolean isGameStarted() { return gameStarted; }
+    public boolean isShowGoScreen() { return showGoScreen; }
+
+    // True once the countdown and GO screen are over and the player can move
+    public boolean isPlaying() { return gameStarted && !showGoScreen; }
+
+    // New Material class to represent collectible items
+    class Material {
+        String name;
+        Color color;
+        int x, y;
+
+        public Material(String name, Color color) {
+            this.name = name;
+            this.color = color;
+            this.x = 0;
+            this.y = 0;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+// Runs the simulation without any UI as fast as the CPU allows.
+// Usage: java HeadlessRunner [ticks] [tickRate]
+public class HeadlessRunner {
+    public static void main(String[] args) {
+        long ticks = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000L;
+        int tickRate = args.length > 1 ? Integer.parseInt(args[1]) : GameSimulation.DEFAULT_TICK_RATE;
+
+        GameSimulation simulation = new GameSimulation(tickRate);
+        InputState input = new InputState();
+        int games = 1;
+
+        long start = System.nanoTime();
+        for (long tick = 0; tick < ticks; tick++) {
+            // Simple scripted player: walk in a square, changing direction every 1.5 seconds
+            int leg = (int) ((tick / simulation.ticks(1.5)) % 4);
+            input.clear();
+            if (leg == 0) input.up = true;
+            if (leg == 1) input.right = true;
+            if (leg == 2) input.down = true;
+            if (leg == 3) input.left = true;
+
+            simulation.step(input);
+
+            if (simulation.isGameOver()) {
+                simulation.resetGame();
+                games++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        double seconds = elapsed / 1_000_000_000.0;
+        System.out.printf("%d ticks in %.3f s (%.0f ticks/s), %d games%n",
+                ticks, seconds, ticks / seconds, games);
+    }
+}
@@ -1,8 +1,17 @@
 import javax.swing.*;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.awt.GraphicsConfiguration;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
+// Splash screen shown while the assets load and the JIT warms up (see Warmup) in the background.
+// Must be shown on the event dispatch thread; it closes and starts the game as soon as both have
+// finished and the splash has been up for at least MIN_SPLASH_MILLIS.
+// -Drobo.warmupMillis sets how long to warm up (Warmup.DEFAULT_MILLIS by default, 0 for none).
 public class Image {
+    private static final long MIN_SPLASH_MILLIS = 1500;
+
     private JFrame frame;
 
     public void showOpeningScreen() {
@@ -10,7 +19,7 @@ public class Image {
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setSize(700, 700);
 
-        JLabel label = new JLabel(new ImageIcon("/Users/riarao/IdeaProjects/game/src/opening.png"));
+        JLabel label = new JLabel();
         label.setHorizontalAlignment(JLabel.CENTER);
         label.setVerticalAlignment(JLabel.CENTER);
         frame.add(label);
@@ -18,27 +27,59 @@ public class Image {
         frame.setLocationRelativeTo(null);
         frame.setVisible(true);
 
-        // Timer to wait 3 seconds then start the game
-        Timer timer = new Timer();
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                frame.dispose(); // close the opening image window
-                startRobotGame(); // start the real game
-            }
-        }, 3000); // 3 seconds
+        // Decoding and sprite building run on the common pool; only their results come back here
+        GraphicsConfiguration config = frame.getGraphicsConfiguration();
+        Assets.loadImage(Assets.SPLASH_IMAGE, config, ForkJoinPool.commonPool())
+                .whenComplete((image, error) -> SwingUtilities.invokeLater(() -> showSplash(label, image, error)));
+
+        CompletableFuture<Assets> assets = Assets.load(config, ForkJoinPool.commonPool());
+        assets.thenRun(() -> Assets.logStartup("assets loaded"));
+        long warmupMillis = Long.getLong("robo.warmupMillis", Warmup.DEFAULT_MILLIS);
+        CompletableFuture<Void> warmup = CompletableFuture.completedFuture(null);
+        if (warmupMillis > 0) {
+            warmup = CompletableFuture.runAsync(
+                    () -> {
+                        Warmup.run(TimeUnit.MILLISECONDS.toNanos(warmupMillis), config);
+                        Assets.logStartup("JIT warm-up finished");
+                    }, Image::startWarmupThread)
+                    .exceptionally(error -> {
+                        System.err.println("Warm-up failed: " + error);
+                        return null;
+                    });
+        }
+        CompletableFuture<Void> minimumShown = CompletableFuture.runAsync(() -> { },
+                CompletableFuture.delayedExecutor(MIN_SPLASH_MILLIS, TimeUnit.MILLISECONDS));
+        CompletableFuture.allOf(assets, warmup, minimumShown)
+                .whenComplete((done, error) -> SwingUtilities.invokeLater(() -> {
+                    frame.dispose(); // close the opening image window
+                    if (error != null) {
+                        // The game builds its sprites as it needs them anyway
+                        System.err.println("Preloading failed, starting without: " + error);
+                        startRobotGame(null);
+                    } else {
+                        startRobotGame(assets.join());
+                    }
+                }));
     }
 
-    private void startRobotGame() {
-        JFrame gameFrame = new JFrame("Robot Survival Game");
-        RobotSurvivalGame gamePanel = new RobotSurvivalGame();
+    // Warm-up gets a thread of its own so it doesn't queue behind the sprite jobs
+    private static void startWarmupThread(Runnable warmup) {
+        Thread thread = new Thread(warmup, "Warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
 
-        gameFrame.add(gamePanel);
-        gameFrame.setSize(600, 400);
-        gameFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        gameFrame.setLocationRelativeTo(null);
-        gameFrame.setVisible(true);
+    private void showSplash(JLabel label, BufferedImage image, Throwable error) {
+        if (error != null) {
+            System.err.println("No splash image: " + error.getCause());
+        } else if (frame.isDisplayable()) {
+            label.setIcon(new ImageIcon(image));
+        }
+    }
 
-        gamePanel.requestFocusInWindow(); // So key presses work
+    private void startRobotGame(Assets assets) {
+        JFrame gameFrame = new JFrame("Robot Survival Game");
+        gameFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        RobotSurvivalGame.showGame(gameFrame, assets);
     }
 }
@@ -0,0 +1,82 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lock-free single-producer/single-consumer ring buffer of key events, from the key listener
+// (EDT) to the simulation thread, which drains it once per tick.
+// A key pressed during a tick counts as held for that tick even if it was released again before
+// the tick ran, so taps shorter than a tick are never lost.
+// Each event carries its KeyEvent time (converted to System.nanoTime), and the times drained
+// since the last snapshot are kept so the renderer can measure key-to-frame latency.
+public class InputQueue {
+    private static final int CAPACITY = 256; // a power of two
+    private static final int MASK = CAPACITY - 1;
+    private static final int PRESSED = 1 << 30;
+    public static final int MAX_TRACKED = 16; // event times kept per snapshot
+
+    private final int[] events = new int[CAPACITY]; // InputState key bit, plus PRESSED
+    private final long[] times = new long[CAPACITY];
+    private final AtomicLong head = new AtomicLong(); // next event to read, written by the consumer
+    private final AtomicLong tail = new AtomicLong(); // next free slot, written by the producer
+
+    // Producer side
+    private long cachedHead;
+    private volatile long dropped;
+
+    // Consumer side
+    private int held, latched;
+    private final long[] drainedTimes = new long[MAX_TRACKED];
+    private int drainedCount;
+
+    // Producer: queues a key change; false (and counted) if the simulation is too far behind
+    public boolean offer(int key, boolean pressed, long eventNanos) {
+        long t = tail.get();
+        if (t - cachedHead == CAPACITY) {
+            cachedHead = head.get();
+            if (t - cachedHead == CAPACITY) {
+                dropped++;
+                return false;
+            }
+        }
+        int i = (int) t & MASK;
+        events[i] = key | (pressed ? PRESSED : 0);
+        times[i] = eventNanos;
+        tail.lazySet(t + 1); // publishes the slot written above
+        return true;
+    }
+
+    // Consumer, once per tick: applies the queued events and returns the tick's InputState bits
+    public int drain() {
+        long h = head.get();
+        long t = tail.get();
+        for (; h < t; h++) {
+            int i = (int) h & MASK;
+            int event = events[i];
+            int key = event & ~PRESSED;
+            if ((event & PRESSED) != 0) {
+                held |= key;
+                latched |= key;
+            } else {
+                held &= ~key;
+            }
+            if (drainedCount < MAX_TRACKED) {
+                drainedTimes[drainedCount++] = times[i];
+            }
+        }
+        head.lazySet(h);
+        int bits = held | latched;
+        latched = 0;
+        return bits;
+    }
+
+    // Consumer: moves the times of events drained since the last call into the array (at least
+    // MAX_TRACKED long) and returns how many there were
+    public int takeDrainedTimes(long[] into) {
+        int count = drainedCount;
+        System.arraycopy(drainedTimes, 0, into, 0, count);
+        drainedCount = 0;
+        return count;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+}
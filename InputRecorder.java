@@ -0,0 +1,172 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Records a game as its seed plus the input of every tick, so it can be replayed exactly
+// (see InputRecording for the format and ReplayRunner to play one back).
+// Input changes rarely, so ticks are run-length encoded: a few bytes per key press, not per tick.
+// Every few seconds of play the whole game state goes in too, as a keyframe a replay can seek to.
+// Bytes go into a direct buffer that is written out with a FileChannel when full; recording a
+// tick allocates nothing (a keyframe only when the state outgrows its buffer). A failed write
+// stops the recording but never the game.
+public class InputRecorder {
+    private final GameSimulation simulation;
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    private final int keyframeInterval; // in ticks
+    private ByteBuffer keyframe = ByteBuffer.allocate(16 * 1024);
+    private long lastKeyframe;
+
+    private int runBits = -1; // input of the current run, -1 before the first tick
+    private int runLength;
+    private long ticks;
+    private boolean closed;
+
+    public static final double DEFAULT_KEYFRAME_SECONDS = 10;
+
+    public InputRecorder(Path file, GameSimulation simulation) throws IOException {
+        this(file, simulation, DEFAULT_KEYFRAME_SECONDS);
+    }
+
+    // Starts recording from the simulation's current state, with a keyframe every so many seconds
+    // (at its current tick rate)
+    public InputRecorder(Path file, GameSimulation simulation, double keyframeSeconds) throws IOException {
+        this.simulation = simulation;
+        this.file = file;
+        this.keyframeInterval = Math.max(1, simulation.ticks(keyframeSeconds));
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        InputRecording.writeHeader(buffer, simulation);
+        writeKeyframe();
+    }
+
+    public synchronized void record(InputState input) {
+        if (closed) {
+            return;
+        }
+        if (ticks - lastKeyframe >= keyframeInterval) {
+            writeKeyframe();
+        }
+        int bits = input.toBits();
+        if (bits != runBits) {
+            endRun();
+            runBits = bits;
+        }
+        runLength++;
+        ticks++;
+    }
+
+    public synchronized void tickRateChanged(int rate) {
+        if (!closed) {
+            endRun();
+            buffer.put(InputRecording.TICK_RATE);
+            putVarInt(rate);
+            flushIfFull();
+        }
+    }
+
+    public synchronized void enemyCountMultiplierChanged(float multiplier) {
+        if (!closed) {
+            endRun();
+            buffer.put(InputRecording.ENEMY_COUNT_MULTIPLIER);
+            buffer.putFloat(multiplier);
+            flushIfFull();
+        }
+    }
+
+    // Ends the recording with the state the game reached, which a replay must arrive at too
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        endRun();
+        buffer.put(InputRecording.END);
+        buffer.putLong(ticks);
+        buffer.putInt(simulation.getSurvivalTime());
+        buffer.putInt(simulation.getCurrentLevel());
+        buffer.putInt(simulation.getLives());
+        buffer.put(InputRecording.outcomeOf(simulation));
+        try {
+            flush();
+        } catch (IOException e) {
+            System.err.println("Couldn't finish recording " + file + ": " + e);
+        }
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Couldn't close " + file + ": " + e);
+        }
+    }
+
+    public synchronized long getTicks() {
+        return ticks;
+    }
+
+    // The state before the next tick, so a replay restoring it carries on with that tick
+    private void writeKeyframe() {
+        endRun();
+        lastKeyframe = ticks;
+        int size = simulation.stateSize();
+        if (keyframe.capacity() < size) {
+            keyframe = ByteBuffer.allocate(Math.max(size, keyframe.capacity() * 2));
+        }
+        keyframe.clear();
+        simulation.writeState(keyframe);
+        keyframe.flip();
+
+        buffer.put(InputRecording.KEYFRAME);
+        buffer.putLong(ticks);
+        buffer.putInt(size);
+        try {
+            flush();
+            while (keyframe.hasRemaining()) {
+                channel.write(keyframe);
+            }
+        } catch (IOException e) {
+            System.err.println("Recording to " + file + " stopped: " + e);
+            closed = true;
+        }
+    }
+
+    private void endRun() {
+        if (runLength > 0) {
+            buffer.put((byte) runBits);
+            putVarInt(runLength);
+            runLength = 0;
+            flushIfFull();
+        }
+    }
+
+    // Unsigned LEB128: 7 bits per byte, high bit set on all but the last
+    private void putVarInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    // The largest entry (or the footer) always fits in what is left after this
+    private void flushIfFull() {
+        if (buffer.remaining() < 64) {
+            try {
+                flush();
+            } catch (IOException e) {
+                System.err.println("Recording to " + file + " stopped: " + e);
+                closed = true;
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,247 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// A recorded game read back for replay (written by InputRecorder).
+// Besides playing it tick by tick, a replay can seek: it restores the last keyframe at or before
+// the wanted tick and simulates only the ticks from there, so any point of even a long swarm run
+// is at most one keyframe interval of simulation away.
+// Format, big-endian:
+//   header: "ROBO", version byte, tick rate int, seed long, flags byte (1 swarm, 2 invulnerable,
+//           4 flow-field pursuit), enemy count multiplier float
+//   entries until END, each starting with a tag byte:
+//     0-31  input bits (InputState.toBits) followed by the number of ticks as a varint
+//     TICK_RATE followed by a varint, ENEMY_COUNT_MULTIPLIER followed by a float: live tuning
+//           changes, applied before the next tick
+//     KEYFRAME followed by the tick it was taken before (long), a length int and that many bytes
+//           of GameSimulation.writeState; version 2 recordings start with one at tick 0
+//     END   followed by the footer: ticks long, survival time, level and lives ints, outcome byte
+public class InputRecording {
+    static final int MAGIC = 0x524F424F; // "ROBO"
+    static final byte VERSION = 2;
+    static final byte TICK_RATE = 0x40;
+    static final byte ENEMY_COUNT_MULTIPLIER = 0x41;
+    static final byte KEYFRAME = 0x42;
+    static final byte END = 0x7F;
+    private static final int FLAG_SWARM = 1, FLAG_INVULNERABLE = 2, FLAG_FLOW_FIELD = 4;
+
+    public static final byte PLAYING = 0, GAME_OVER = 1, VICTORY = 2;
+
+    private final ByteBuffer data;
+    private final int entriesStart;
+    private final int tickRate;
+    private final long seed;
+    private final int flags;
+    private final float enemyCountMultiplier;
+
+    // Footer
+    private long ticks;
+    private int survivalTime, level, lives;
+    private byte outcome;
+
+    // Keyframe ticks and where their state starts in the data, in order
+    private long[] keyframeTicks = new long[16];
+    private int[] keyframeOffsets = new int[16];
+    private int keyframeCount;
+
+    // Replay position
+    private long tick; // ticks handed out so far
+    private int runBits, runLeft;
+
+    private InputRecording(ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.getInt() != MAGIC) {
+            throw new IOException("Not a ROBO recording");
+        }
+        byte version = data.get();
+        if (version != 1 && version != VERSION) {
+            throw new IOException("Unsupported recording version " + version);
+        }
+        tickRate = data.getInt();
+        seed = data.getLong();
+        flags = data.get();
+        enemyCountMultiplier = data.getFloat();
+        entriesStart = data.position();
+        readFooter(data.duplicate());
+    }
+
+    public static InputRecording read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            ByteBuffer data = ByteBuffer.allocate((int) channel.size());
+            while (data.hasRemaining() && channel.read(data) >= 0) {
+            }
+            data.flip();
+            return new InputRecording(data);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Recording " + file + " is cut short (did the game exit cleanly?)");
+        }
+    }
+
+    static void writeHeader(ByteBuffer buffer, GameSimulation simulation) {
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.putInt(simulation.getTickRate());
+        buffer.putLong(simulation.getSeed());
+        buffer.put((byte) ((simulation.isSwarmMode() ? FLAG_SWARM : 0) | (simulation.isInvulnerable() ? FLAG_INVULNERABLE : 0)
+                | (simulation.isFlowFieldPursuit() ? FLAG_FLOW_FIELD : 0)));
+        buffer.putFloat(simulation.getEnemyCountMultiplier());
+    }
+
+    static byte outcomeOf(GameSimulation simulation) {
+        if (!simulation.isGameOver()) {
+            return PLAYING;
+        }
+        return simulation.isVictory() ? VICTORY : GAME_OVER;
+    }
+
+    // Skips through the entries once to find the keyframes and the footer
+    private void readFooter(ByteBuffer in) {
+        while (true) {
+            byte tag = in.get();
+            if (tag == END) {
+                break;
+            } else if (tag == KEYFRAME) {
+                long keyframeTick = in.getLong();
+                int length = in.getInt();
+                if (keyframeCount == keyframeTicks.length) {
+                    keyframeTicks = Arrays.copyOf(keyframeTicks, keyframeCount * 2);
+                    keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframeCount * 2);
+                }
+                keyframeTicks[keyframeCount] = keyframeTick;
+                keyframeOffsets[keyframeCount] = in.position();
+                keyframeCount++;
+                in.position(in.position() + length);
+            } else if (tag == TICK_RATE) {
+                getVarInt(in);
+            } else if (tag == ENEMY_COUNT_MULTIPLIER) {
+                in.getFloat();
+            } else {
+                getVarInt(in);
+            }
+        }
+        ticks = in.getLong();
+        survivalTime = in.getInt();
+        level = in.getInt();
+        lives = in.getInt();
+        outcome = in.get();
+    }
+
+    // A fresh simulation set up exactly as the recorded one was
+    public GameSimulation createSimulation() {
+        GameSimulation simulation = new GameSimulation(tickRate, seed);
+        simulation.setSwarmMode((flags & FLAG_SWARM) != 0);
+        simulation.setInvulnerable((flags & FLAG_INVULNERABLE) != 0);
+        simulation.setEnemyCountMultiplier(enemyCountMultiplier);
+        rewind(simulation);
+        return simulation;
+    }
+
+    // Goes back to the start of the recording, putting the simulation in the state it started in
+    // (which may be mid-game, e.g. a load test that jumped levels). Without a keyframe at tick 0
+    // (version 1) only a simulation from createSimulation() can be rewound, and only before it ran.
+    public void rewind(GameSimulation simulation) {
+        data.position(entriesStart);
+        tick = 0;
+        runLeft = 0;
+        // Keyframes don't hold how enemies steer; recordings from before flow fields steer straight
+        simulation.setFlowFieldPursuit((flags & FLAG_FLOW_FIELD) != 0);
+        if (hasStartKeyframe()) {
+            ByteBuffer state = data.duplicate();
+            state.position(keyframeOffsets[0]);
+            simulation.readState(state);
+        }
+    }
+
+    public boolean hasStartKeyframe() {
+        return keyframeCount > 0 && keyframeTicks[0] == 0;
+    }
+
+    // Fills in the next tick's input, applying any tuning change recorded before it.
+    // Returns false once every recorded tick has been handed out.
+    public boolean next(InputState input, GameSimulation simulation) {
+        while (runLeft == 0) {
+            byte tag = data.get();
+            if (tag == END) {
+                data.position(data.position() - 1); // stay at the end
+                return false;
+            } else if (tag == KEYFRAME) {
+                data.position(data.position() + 8);
+                int length = data.getInt();
+                data.position(data.position() + length);
+            } else if (tag == TICK_RATE) {
+                simulation.setTickRate(getVarInt(data));
+            } else if (tag == ENEMY_COUNT_MULTIPLIER) {
+                simulation.setEnemyCountMultiplier(data.getFloat());
+            } else {
+                runBits = tag;
+                runLeft = getVarInt(data);
+            }
+        }
+        input.setBits(runBits);
+        runLeft--;
+        tick++;
+        return true;
+    }
+
+    // Puts the simulation at the given tick (clamped to the recording) and returns how many ticks
+    // it had to simulate to get there. Going forward from the current position within the same
+    // keyframe interval just plays on; otherwise the closest keyframe before the tick is restored.
+    // The simulation must be one this recording has been driving (or a fresh createSimulation()).
+    public long seek(long target, GameSimulation simulation, InputState input) {
+        target = Math.max(0, Math.min(target, ticks));
+        int keyframe = -1;
+        for (int i = 0; i < keyframeCount && keyframeTicks[i] <= target; i++) {
+            keyframe = i;
+        }
+        boolean playOn = target >= tick && (keyframe < 0 || keyframeTicks[keyframe] <= tick);
+        if (!playOn) {
+            if (keyframe < 0) {
+                throw new IllegalStateException("Recording has no keyframe to seek back to");
+            }
+            data.position(keyframeOffsets[keyframe]);
+            simulation.readState(data);
+            tick = keyframeTicks[keyframe];
+            runLeft = 0;
+        }
+        long simulated = 0;
+        while (tick < target && next(input, simulation)) {
+            simulation.step(input);
+            simulated++;
+        }
+        return simulated;
+    }
+
+    // Whether a replayed simulation ended where the recording did
+    public boolean matches(GameSimulation simulation) {
+        return simulation.getSurvivalTime() == survivalTime && simulation.getCurrentLevel() == level
+                && simulation.getLives() == lives && outcomeOf(simulation) == outcome;
+    }
+
+    private static int getVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    public long getTick() { return tick; }
+    public int getKeyframeCount() { return keyframeCount; }
+    public int getTickRate() { return tickRate; }
+    public long getSeed() { return seed; }
+    public long getTicks() { return ticks; }
+    public int getSurvivalTime() { return survivalTime; }
+    public int getLevel() { return level; }
+    public int getLives() { return lives; }
+    public byte getOutcome() { return outcome; }
+
+    public static String describe(byte outcome) {
+        return outcome == VICTORY ? "victory" : outcome == GAME_OVER ? "game over" : "still playing";
+    }
+}
@@ -0,0 +1,29 @@
+// Player input for a single simulation tick
+public class InputState {
+    // Bit for each key in toBits(), as stored in input recordings
+    public static final int UP = 1, DOWN = 2, LEFT = 4, RIGHT = 8, RESTART = 16;
+
+    public boolean up, down, left, right;
+    public boolean restart; // SPACE on the game over screen
+
+    public boolean anyDirection() {
+        return up || down || left || right;
+    }
+
+    public void clear() {
+        up = down = left = right = false;
+        restart = false;
+    }
+
+    public int toBits() {
+        return (up ? UP : 0) | (down ? DOWN : 0) | (left ? LEFT : 0) | (right ? RIGHT : 0) | (restart ? RESTART : 0);
+    }
+
+    public void setBits(int bits) {
+        up = (bits & UP) != 0;
+        down = (bits & DOWN) != 0;
+        left = (bits & LEFT) != 0;
+        right = (bits & RIGHT) != 0;
+        restart = (bits & RESTART) != 0;
+    }
+}
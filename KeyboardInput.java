@@ -0,0 +1,54 @@
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+
+// Translates key events into InputQueue events for the simulation thread, stamped with the
+// event's own time so the latency from key press to frame can be measured.
+// Auto-repeated presses of a key that is already down are dropped.
+// F3 shows or hides the performance overlay.
+public class KeyboardInput implements KeyListener {
+    private final InputQueue queue;
+    private final PerformanceStats stats;
+    private int down; // InputState bits of the keys currently held
+
+    public KeyboardInput(InputQueue queue, PerformanceStats stats) {
+        this.queue = queue;
+        this.stats = stats;
+    }
+
+    @Override
+    public void keyPressed(KeyEvent e) {
+        if (e.getKeyCode() == KeyEvent.VK_F3 && stats != null) {
+            stats.toggleVisible();
+        }
+        setKey(e, true);
+    }
+
+    @Override
+    public void keyReleased(KeyEvent e) {
+        setKey(e, false);
+    }
+
+    @Override
+    public void keyTyped(KeyEvent e) {}
+
+    private void setKey(KeyEvent e, boolean pressed) {
+        int key = e.getKeyCode();
+        int bit = 0;
+        if (key == KeyEvent.VK_W || key == KeyEvent.VK_UP) bit = InputState.UP;
+        if (key == KeyEvent.VK_S || key == KeyEvent.VK_DOWN) bit = InputState.DOWN;
+        if (key == KeyEvent.VK_A || key == KeyEvent.VK_LEFT) bit = InputState.LEFT;
+        if (key == KeyEvent.VK_D || key == KeyEvent.VK_RIGHT) bit = InputState.RIGHT;
+        if (key == KeyEvent.VK_SPACE) bit = InputState.RESTART;
+        if (bit == 0 || ((down & bit) != 0) == pressed) {
+            return;
+        }
+        down = pressed ? down | bit : down & ~bit;
+        queue.offer(bit, pressed, toNanoTime(e.getWhen()));
+    }
+
+    // KeyEvent times are wall-clock milliseconds; move them onto the System.nanoTime clock
+    private static long toNanoTime(long when) {
+        long age = Math.max(0, System.currentTimeMillis() - when);
+        return System.nanoTime() - age * 1_000_000L;
+    }
+}
@@ -0,0 +1,58 @@
+// The inner loop of EntityMover: moves a range of entities towards the target, straight or
+// along a FlowField, and finds the highest index whose box overlaps the player's.
+// This class is the plain one-entity-at-a-time loop. VectorMoveKernel, in simd/, does a vector
+// register's worth of entities per instruction with the incubating jdk.incubator.vector module;
+// it is compiled separately (the module has to be added to javac) and found at run time:
+//   javac -d out *.java
+//   javac --add-modules jdk.incubator.vector -cp out -d out simd/*.java
+//   java --add-modules jdk.incubator.vector -cp out Driver
+// Without the module or the class the game runs this one. Both do the same float operations in
+// the same order, so they give bit-for-bit the same game (see MoveKernelCheck).
+// -Drobo.simd=false forces this one.
+public class MoveKernel {
+    public static final MoveKernel SCALAR = new MoveKernel();
+    private static final MoveKernel VECTOR = loadVector();
+
+    private static MoveKernel loadVector() {
+        if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            return null;
+        }
+        try {
+            return (MoveKernel) Class.forName("VectorMoveKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null; // simd/ wasn't compiled
+        }
+    }
+
+    // The vector kernel, or null if it isn't available in this JVM
+    public static MoveKernel vector() {
+        return VECTOR;
+    }
+
+    public static MoveKernel fromSystemProperties() {
+        return VECTOR != null && !"false".equals(System.getProperty("robo.simd")) ? VECTOR : SCALAR;
+    }
+
+    public String getName() {
+        return "scalar";
+    }
+
+    // Entities from..to-1; returns the highest index hitting minX..maxX, minY..maxY, or -1
+    int update(EntityStore store, FlowField field, int from, int to, float targetX, float targetY,
+               float tickSeconds, float minX, float minY, float maxX, float maxY) {
+        int hit = -1;
+        for (int i = from; i < to; i++) {
+            if (field != null) {
+                field.move(store, i, tickSeconds);
+            } else {
+                EntityMover.moveTowards(store, i, targetX, targetY, tickSeconds);
+            }
+            float x = store.x[i], y = store.y[i];
+            int size = store.size[i];
+            if (x < maxX && x + size > minX && y < maxY && y + size > minY) {
+                hit = i;
+            }
+        }
+        return hit;
+    }
+}
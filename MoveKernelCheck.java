@@ -0,0 +1,146 @@
+import java.util.Random;
+
+// Verifies that the vector MoveKernel gives exactly the same results as the scalar one.
+// First on made-up stores: odd counts (so the scalar tail runs too), entities on the target, in
+// its cell and outside the world, moving straight, along an open flow field, along one with
+// walls and along one towards two targets (co-op), comparing every coordinate's and velocity's
+// bits and the hit after each tick. Then plays the same seeded swarm with each and compares
+// every entity after each tick, printing how long each took. Exits with status 1 on the first difference, or if the vector kernel isn't
+// available (see MoveKernel for how to build and run it).
+// Usage: java --add-modules jdk.incubator.vector MoveKernelCheck [enemies] [ticks]
+public class MoveKernelCheck {
+    private static final long SEED = 12345;
+
+    public static void main(String[] args) {
+        int enemies = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 600;
+        MoveKernel vector = MoveKernel.vector();
+        if (vector == null) {
+            System.out.println("The vector kernel isn't available: compile simd/ and run with --add-modules jdk.incubator.vector");
+            System.exit(1);
+        }
+        System.out.println("Comparing scalar against " + vector.getName());
+
+        boolean ok = true;
+        for (int mode = 0; mode <= 3 && ok; mode++) {
+            ok = compareStores(vector, mode, ticks);
+        }
+        ok = ok && compareGames(vector, enemies, ticks);
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    // mode: 0 moves straight, 1 along an open field, 2 along a field with blocked cells, 3 along
+    // one with two targets
+    private static boolean compareStores(MoveKernel vector, int mode, int ticks) {
+        String[] names = {"straight", "open flow field", "flow field with walls", "flow field with two targets"};
+        String name = names[mode];
+        FlowField field = null;
+        if (mode > 0) {
+            field = new FlowField(GameSimulation.WIDTH, GameSimulation.HEIGHT, FlowField.DEFAULT_CELL_SIZE);
+            for (int row = 5; row < 25 && mode == 2; row++) {
+                field.setBlocked(12, row, true);
+            }
+        }
+        Random random = new Random(SEED);
+        for (int count : new int[] {1, 7, 37, 1001}) {
+            EntityStore a = new EntityStore(count), b = new EntityStore(count);
+            for (int i = 0; i < count; i++) {
+                float x = random.nextFloat() * (GameSimulation.WIDTH + 200) - 100;
+                float y = random.nextFloat() * (GameSimulation.HEIGHT + 200) - 100;
+                int kind = random.nextInt(8);
+                if (kind == 0) {
+                    x = 300; // on the target
+                    y = 300;
+                } else if (kind == 1) {
+                    x = 300 + random.nextFloat() * 19; // in the target's cell
+                    y = 300 + random.nextFloat() * 19;
+                } else if (kind == 2) {
+                    x = 100 + random.nextFloat() * 19; // in the second target's
+                    y = 450 + random.nextFloat() * 19;
+                }
+                int size = 10 + random.nextInt(80);
+                float speed = 30 + random.nextFloat() * 90;
+                a.add(x, y, size, speed, GameSimulation.TYPE_ENEMY);
+                b.add(x, y, size, speed, GameSimulation.TYPE_ENEMY);
+            }
+            for (int tick = 0; tick < ticks; tick++) {
+                // The target wanders, so entities keep crossing into and out of its cell
+                float targetX = 300 + (tick % 97) - 48, targetY = 300 - (tick % 61) + 30;
+                if (mode == 3) {
+                    field.build(targetX, targetY, 100 + (tick % 13), 450 + (tick % 7));
+                } else if (field != null) {
+                    field.build(targetX, targetY);
+                }
+                int hitA = MoveKernel.SCALAR.update(a, field, 0, count, targetX, targetY, 1 / 60f,
+                        targetX + 6, targetY + 6, targetX + 24, targetY + 24);
+                int hitB = vector.update(b, field, 0, count, targetX, targetY, 1 / 60f,
+                        targetX + 6, targetY + 6, targetX + 24, targetY + 24);
+                String difference = hitA != hitB ? "hit " + hitA + " vs " + hitB : difference(a, b);
+                if (difference != null) {
+                    System.out.println(name + " [" + count + " entities]: differ at tick " + tick + ": " + difference);
+                    return false;
+                }
+            }
+        }
+        System.out.println(name + ": identical over " + ticks + " ticks");
+        return true;
+    }
+
+    private static boolean compareGames(MoveKernel vector, int enemies, int ticks) {
+        GameSimulation scalar = newSimulation(enemies, MoveKernel.SCALAR);
+        GameSimulation vectorized = newSimulation(enemies, vector);
+        InputState input = new InputState();
+        long scalarNanos = 0, vectorNanos = 0;
+        for (int tick = 0; tick < ticks; tick++) {
+            input.clear();
+            int direction = (tick / 30) % 4;
+            if (direction == 0) input.up = true;
+            if (direction == 1) input.right = true;
+            if (direction == 2) input.down = true;
+            if (direction == 3) input.left = true;
+
+            long start = System.nanoTime();
+            scalar.step(input);
+            long middle = System.nanoTime();
+            vectorized.step(input);
+            long end = System.nanoTime();
+            scalarNanos += middle - start;
+            vectorNanos += end - middle;
+
+            String difference = scalar.getLives() != vectorized.getLives() ? "lives"
+                    : difference(scalar.getEnemies(), vectorized.getEnemies());
+            if (difference != null) {
+                System.out.println("swarm: games differ at tick " + tick + ": " + difference);
+                return false;
+            }
+        }
+        System.out.printf("swarm: identical over %d ticks (%d enemies), scalar %.3f ms/tick, vector %.3f ms/tick%n",
+                ticks, scalar.getEnemies().count(), scalarNanos / 1e6 / ticks, vectorNanos / 1e6 / ticks);
+        return true;
+    }
+
+    private static GameSimulation newSimulation(int enemies, MoveKernel kernel) {
+        GameSimulation simulation = new GameSimulation(GameSimulation.DEFAULT_TICK_RATE, SEED);
+        simulation.setEntityMover(EntityMover.serial(kernel));
+        simulation.skipCountdown();
+        simulation.addEnemies(enemies);
+        return simulation;
+    }
+
+    private static String difference(EntityStore a, EntityStore b) {
+        if (a.count() != b.count()) {
+            return "count " + a.count() + " vs " + b.count();
+        }
+        for (int i = 0; i < a.count(); i++) {
+            if (Float.floatToRawIntBits(a.x[i]) != Float.floatToRawIntBits(b.x[i])
+                    || Float.floatToRawIntBits(a.y[i]) != Float.floatToRawIntBits(b.y[i])
+                    || Float.floatToRawIntBits(a.vx[i]) != Float.floatToRawIntBits(b.vx[i])
+                    || Float.floatToRawIntBits(a.vy[i]) != Float.floatToRawIntBits(b.vy[i])) {
+                return "entity " + i;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,115 @@
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+// A bad network in between a co-op host and client, for trying them out over loopback: datagrams
+// sent through here are dropped with the given probability and the rest held back by the
+// latency plus up to the jitter (so they can arrive out of order) before really being sent.
+// Held datagrams go out on the next flush at or after they are due; the host and client flush
+// every tick, so the latency seen is rounded up to a tick.
+// One instance per sending thread. With no latency, jitter or loss it sends straight away.
+// -Drobo.net.latencyMillis, -Drobo.net.jitterMillis and -Drobo.net.loss (0 to 1) set the defaults.
+public class NetworkConditions {
+    private final long latencyNanos, jitterNanos;
+    private final double loss;
+    private final Random random;
+    private final PriorityQueue<Delayed> delayed = new PriorityQueue<>();
+    private long sent, dropped, queued;
+
+    private static class Delayed implements Comparable<Delayed> {
+        final byte[] data;
+        final SocketAddress to;
+        final long due, order;
+
+        Delayed(byte[] data, SocketAddress to, long due, long order) {
+            this.data = data;
+            this.to = to;
+            this.due = due;
+            this.order = order;
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            int byDue = Long.compare(due, other.due);
+            return byDue != 0 ? byDue : Long.compare(order, other.order);
+        }
+    }
+
+    public NetworkConditions(double latencyMillis, double jitterMillis, double loss, long seed) {
+        if (latencyMillis < 0 || jitterMillis < 0 || loss < 0 || loss > 1) {
+            throw new IllegalArgumentException("Latency and jitter can't be negative, and loss must be 0 to 1");
+        }
+        this.latencyNanos = (long) (latencyMillis * 1_000_000);
+        this.jitterNanos = (long) (jitterMillis * 1_000_000);
+        this.loss = loss;
+        this.random = new Random(seed);
+    }
+
+    public static NetworkConditions fromSystemProperties() {
+        return new NetworkConditions(Double.parseDouble(System.getProperty("robo.net.latencyMillis", "0")),
+                Double.parseDouble(System.getProperty("robo.net.jitterMillis", "0")),
+                Double.parseDouble(System.getProperty("robo.net.loss", "0")), System.nanoTime());
+    }
+
+    public boolean isPerfect() {
+        return latencyNanos == 0 && jitterNanos == 0 && loss == 0;
+    }
+
+    // Sends what is left in buffer to the address (or the channel's connected peer if to is null),
+    // now or later, or not at all
+    public void send(DatagramChannel channel, ByteBuffer buffer, SocketAddress to) throws IOException {
+        sent++;
+        if (loss > 0 && random.nextDouble() < loss) {
+            dropped++;
+            buffer.position(buffer.limit());
+            return;
+        }
+        if (latencyNanos == 0 && jitterNanos == 0) {
+            write(channel, buffer, to);
+            return;
+        }
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        long delay = latencyNanos + (jitterNanos > 0 ? (long) (random.nextDouble() * jitterNanos) : 0);
+        delayed.add(new Delayed(data, to, System.nanoTime() + delay, queued++));
+    }
+
+    // Sends the held datagrams that are due by now (System.nanoTime)
+    public void flush(DatagramChannel channel, long now) throws IOException {
+        while (!delayed.isEmpty() && delayed.peek().due <= now) {
+            Delayed next = delayed.poll();
+            write(channel, ByteBuffer.wrap(next.data), next.to);
+        }
+    }
+
+    // When the next held datagram is due, or Long.MAX_VALUE if none is
+    public long nextDue() {
+        return delayed.isEmpty() ? Long.MAX_VALUE : delayed.peek().due;
+    }
+
+    private static void write(DatagramChannel channel, ByteBuffer buffer, SocketAddress to) throws IOException {
+        // A full send buffer loses the datagram, as the network would
+        if (to != null) {
+            channel.send(buffer, to);
+        } else {
+            channel.write(buffer);
+        }
+    }
+
+    public long getSent() {
+        return sent;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.0f ms latency, %.0f ms jitter, %.1f%% loss",
+                latencyNanos / 1e6, jitterNanos / 1e6, loss * 100);
+    }
+}
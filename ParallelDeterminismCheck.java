@@ -0,0 +1,114 @@
+// Verifies that the parallel enemy/boss update gives exactly the same game as the serial one.
+// Plays the same seeded swarm twice, once forced serial and once split into small chunks on
+// several threads, and compares every entity's position bits after each tick. The boss level
+// runs with a chunk size of 1, so its few bosses (and their splits) really move in separate
+// chunks. Also prints how long each took. Exits with status 1 on the first difference, or if
+// the parallel run never split a store.
+// Usage: java ParallelDeterminismCheck [enemies] [ticks] [chunkSize] [threads]
+public class ParallelDeterminismCheck {
+    private static final long SEED = 12345;
+
+    public static void main(String[] args) {
+        int enemies = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 600;
+        int chunkSize = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        boolean ok = compare("swarm", enemies, 1, ticks, chunkSize, threads);
+        ok &= compare("boss level", 0, GameSimulation.BOSS_LEVEL, ticks, 1, threads);
+
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean compare(String name, int enemies, int level, int ticks, int chunkSize, int threads) {
+        GameSimulation serial = newSimulation(enemies, level);
+        serial.setEntityMover(EntityMover.serial());
+        GameSimulation parallel = newSimulation(enemies, level);
+        // Threshold 0, so any store bigger than one chunk takes the parallel path
+        EntityMover mover = new EntityMover(chunkSize, 0, Math.max(2, threads));
+        parallel.setEntityMover(mover);
+
+        InputState input = new InputState();
+        long serialNanos = 0, parallelNanos = 0;
+        int splitTicks = 0;
+        for (int tick = 0; tick < ticks; tick++) {
+            script(input, tick);
+            if (mover.isParallel(parallel.getEnemies().count()) || mover.isParallel(parallel.getBossRobots().count())) {
+                splitTicks++;
+            }
+
+            long start = System.nanoTime();
+            serial.step(input);
+            long middle = System.nanoTime();
+            parallel.step(input);
+            long end = System.nanoTime();
+            serialNanos += middle - start;
+            parallelNanos += end - middle;
+
+            String difference = difference(serial, parallel);
+            if (difference != null) {
+                System.out.println(name + ": runs differ at tick " + tick + ": " + difference);
+                return false;
+            }
+        }
+
+        System.out.printf("%s: identical over %d ticks, %d of them split into chunks (%d enemies, %d bosses at the end), "
+                        + "serial %.3f ms/tick, parallel %.3f ms/tick%n",
+                name, ticks, splitTicks, serial.getEnemies().count(), serial.getBossRobots().count(),
+                serialNanos / 1e6 / ticks, parallelNanos / 1e6 / ticks);
+        if (splitTicks == 0) {
+            System.out.println(name + ": the parallel run never split a store, nothing was compared");
+            return false;
+        }
+        return true;
+    }
+
+    private static GameSimulation newSimulation(int enemies, int level) {
+        GameSimulation simulation = new GameSimulation(GameSimulation.DEFAULT_TICK_RATE, SEED);
+        simulation.skipCountdown();
+        simulation.jumpToLevel(level);
+        simulation.addEnemies(enemies);
+        return simulation;
+    }
+
+    // Scripted player: circles around the arena, firing in the boss level
+    private static void script(InputState input, int tick) {
+        input.clear();
+        int direction = (tick / 30) % 4;
+        if (direction == 0) input.up = true;
+        if (direction == 1) input.right = true;
+        if (direction == 2) input.down = true;
+        if (direction == 3) input.left = true;
+    }
+
+    private static String difference(GameSimulation a, GameSimulation b) {
+        if (a.getLives() != b.getLives() || a.getCurrentLevel() != b.getCurrentLevel()
+                || a.isGameOver() != b.isGameOver() || a.getSurvivalTime() != b.getSurvivalTime()) {
+            return "game state";
+        }
+        String difference = difference("enemy", a.getEnemies(), b.getEnemies());
+        if (difference == null) {
+            difference = difference("boss", a.getBossRobots(), b.getBossRobots());
+        }
+        if (difference == null) {
+            difference = difference("projectile", a.getProjectiles(), b.getProjectiles());
+        }
+        return difference;
+    }
+
+    private static String difference(String kind, EntityStore a, EntityStore b) {
+        if (a.count() != b.count()) {
+            return kind + " count " + a.count() + " vs " + b.count();
+        }
+        for (int i = 0; i < a.count(); i++) {
+            if (Float.floatToRawIntBits(a.x[i]) != Float.floatToRawIntBits(b.x[i])
+                    || Float.floatToRawIntBits(a.y[i]) != Float.floatToRawIntBits(b.y[i])
+                    || a.size[i] != b.size[i] || a.handle(i) != b.handle(i)) {
+                return kind + " " + i;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,228 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+// The numbers behind the performance overlay (F3): frame, tick and per-phase durations in
+// histograms, frames and ticks per second, and garbage collections. Also the latency from a key
+// event to the end of the first frame painted with it (key-to-photon, less the display's own
+// delay), over the last second and since start.
+// Samples go into one set of histograms for a second, which is then copied to the set the
+// overlay shows, so the overlay always describes the last full second. Nothing here allocates
+// once constructed, so measuring doesn't disturb what is measured.
+// It also keeps running totals since start (ticks, average and peak durations, dropped frames)
+// and a copy of the simulation's counts, level, lives and settings after each tick for
+// GameMetrics, and prints the tick times of the first seconds of play once, to show how much
+// the JIT warm-up (see Warmup) helped.
+// Ticks are recorded on the simulation thread and frames on the painting thread, so each side
+// keeps its own one-second window and only touches its own histograms. The overlay may read a
+// tick histogram while it is being copied; that can only make one second's numbers slightly off.
+// The totals are volatile so JMX threads can read them, and visibility is toggled from the key
+// listener.
+public class PerformanceStats {
+    public static final int FRAME = 0, TICK = 1, MOVEMENT = 2, COLLISIONS = 3, PROJECTILES = 4, RENDER = 5, INPUT = 6;
+    public static final String[] NAMES = {"frame", "tick", "movement", "collisions", "projectiles", "render", "input"};
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    private final Histogram[] recording = new Histogram[NAMES.length];
+    private final Histogram[] shown = new Histogram[NAMES.length];
+    private final GarbageCollectorMXBean[] collectors;
+    private final Histogram inputLatency = new Histogram(); // since start
+
+    private long windowStart = -1, tickWindowStart = -1;
+    private int frames, ticks;
+    private volatile int window; // counts finished frame windows, so the overlay knows when to redraw
+    private volatile double framesPerSecond, ticksPerSecond;
+    private long gcCount, gcMillis;
+    private long gcCountInWindow, gcMillisInWindow;
+
+    private volatile boolean visible;
+
+    // Totals since start; a frame arriving later than 1.5 frame budgets counts the frames it missed
+    private final long frameBudgetNanos;
+    private volatile long frameCount, droppedFrames;
+    private volatile long tickCount, tickNanosTotal, peakTickNanos;
+    private volatile long paintCount, paintNanosTotal, peakPaintNanos;
+
+    // The simulation as of the last tick, copied on its thread for readers on other threads
+    private volatile int enemyCount, bossCount, projectileCount, currentLevel, lives, tickRate;
+    private volatile float enemyCountMultiplier;
+
+    private static final int STARTUP_SECONDS = 10;
+    private final Histogram startupTicks = new Histogram();
+    private long startupTicksLeft = -1, startupNanosTotal;
+
+    public PerformanceStats(int targetFps) {
+        frameBudgetNanos = 1_000_000_000L / targetFps;
+        for (int i = 0; i < NAMES.length; i++) {
+            recording[i] = new Histogram();
+            shown[i] = new Histogram();
+        }
+        List<GarbageCollectorMXBean> beans = ManagementFactory.getGarbageCollectorMXBeans();
+        collectors = beans.toArray(new GarbageCollectorMXBean[0]);
+        readCollectors();
+        gcCountInWindow = 0;
+        gcMillisInWindow = 0;
+    }
+
+    public void toggleVisible() {
+        visible = !visible;
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    // Time since the previous frame, once per frame, on the painting thread
+    public void recordFrame(long frameNanos) {
+        recording[FRAME].record(frameNanos);
+        frames++;
+        frameCount++;
+        if (frameNanos > frameBudgetNanos * 3 / 2) {
+            droppedFrames += Math.round((double) frameNanos / frameBudgetNanos) - 1;
+        }
+
+        long now = System.nanoTime();
+        if (windowStart < 0) {
+            windowStart = now;
+        } else if (now - windowStart >= WINDOW_NANOS) {
+            finishWindow(now);
+        }
+    }
+
+    // One simulation step, with the phase split the simulation measured for it, on its thread
+    public void recordTick(long tickNanos, GameSimulation sim) {
+        recording[TICK].record(tickNanos);
+        recording[MOVEMENT].record(sim.getPhaseNanos(GameSimulation.PHASE_MOVEMENT));
+        recording[COLLISIONS].record(sim.getPhaseNanos(GameSimulation.PHASE_COLLISIONS));
+        recording[PROJECTILES].record(sim.getPhaseNanos(GameSimulation.PHASE_PROJECTILES));
+        ticks++;
+        tickCount++;
+        tickNanosTotal += tickNanos;
+        peakTickNanos = Math.max(peakTickNanos, tickNanos);
+        recordWorld(sim);
+        if (startupTicksLeft != 0 && sim.isPlaying()) {
+            recordStartupTick(tickNanos, sim);
+        }
+
+        long now = System.nanoTime();
+        if (tickWindowStart < 0) {
+            tickWindowStart = now;
+        } else if (now - tickWindowStart >= WINDOW_NANOS) {
+            ticksPerSecond = ticks / ((now - tickWindowStart) / 1e9);
+            ticks = 0;
+            tickWindowStart = now;
+            showRecorded(TICK, PROJECTILES);
+        }
+    }
+
+    // Copies what GameMetrics shows of the simulation, on the thread that owns it
+    public void recordWorld(GameSimulation sim) {
+        enemyCount = sim.getEnemies().count();
+        bossCount = sim.getBossRobots().count();
+        projectileCount = sim.getProjectiles().count();
+        currentLevel = sim.getCurrentLevel();
+        lives = sim.getLives();
+        tickRate = sim.getTickRate();
+        enemyCountMultiplier = sim.getEnemyCountMultiplier();
+    }
+
+    public void recordRender(long renderNanos) {
+        recording[RENDER].record(renderNanos);
+        paintCount++;
+        paintNanosTotal += renderNanos;
+        peakPaintNanos = Math.max(peakPaintNanos, renderNanos);
+    }
+
+    private void recordStartupTick(long tickNanos, GameSimulation sim) {
+        if (startupTicksLeft < 0) {
+            startupTicksLeft = sim.ticks(STARTUP_SECONDS);
+        }
+        startupTicks.record(tickNanos);
+        startupNanosTotal += tickNanos;
+        if (--startupTicksLeft == 0) {
+            long warmup = Warmup.getLastRunMillis();
+            System.out.printf("Startup: ticks in the first %d s of play: mean %.3f, p50 %.3f, p99 %.3f, max %.3f ms (%s)%n",
+                    STARTUP_SECONDS, startupNanosTotal / 1e6 / startupTicks.count(),
+                    startupTicks.percentile(0.5) / 1e6, startupTicks.percentile(0.99) / 1e6, startupTicks.max() / 1e6,
+                    warmup > 0 ? "after " + warmup + " ms of warm-up" : "no warm-up");
+        }
+    }
+
+    // Key event to the end of the first frame showing it, on the painting thread
+    public void recordInputLatency(long latencyNanos) {
+        recording[INPUT].record(latencyNanos);
+        inputLatency.record(latencyNanos);
+    }
+
+    private void finishWindow(long now) {
+        framesPerSecond = frames / ((now - windowStart) / 1e9);
+        frames = 0;
+        windowStart = now;
+        showRecorded(FRAME, FRAME);
+        showRecorded(RENDER, INPUT);
+
+        long previousCount = gcCount, previousMillis = gcMillis;
+        readCollectors();
+        gcCountInWindow = gcCount - previousCount;
+        gcMillisInWindow = gcMillis - previousMillis;
+        window++;
+    }
+
+    private void showRecorded(int firstKind, int lastKind) {
+        for (int i = firstKind; i <= lastKind; i++) {
+            shown[i].copyFrom(recording[i]);
+            recording[i].reset();
+        }
+    }
+
+    private void readCollectors() {
+        gcCount = 0;
+        gcMillis = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            // Either can be -1 when a collector doesn't keep track
+            gcCount += Math.max(0, collector.getCollectionCount());
+            gcMillis += Math.max(0, collector.getCollectionTime());
+        }
+    }
+
+    // Histogram of the last full second for FRAME, TICK, ..., RENDER
+    public Histogram get(int kind) {
+        return shown[kind];
+    }
+
+    public int getWindow() { return window; }
+    public double getFramesPerSecond() { return framesPerSecond; }
+    public double getTicksPerSecond() { return ticksPerSecond; }
+    public long getGcCount() { return gcCount; }
+    public long getGcMillis() { return gcMillis; }
+    public long getGcCountInWindow() { return gcCountInWindow; }
+    public long getGcMillisInWindow() { return gcMillisInWindow; }
+
+    // Key-to-frame latency since start; JMX threads reading it may see a sample half-recorded
+    public Histogram getInputLatency() { return inputLatency; }
+
+    // Totals since start, safe to read from any thread
+    public long getFrameCount() { return frameCount; }
+    public long getDroppedFrames() { return droppedFrames; }
+    public long getTickCount() { return tickCount; }
+    public long getTickNanosTotal() { return tickNanosTotal; }
+    public long getPeakTickNanos() { return peakTickNanos; }
+    public long getPaintCount() { return paintCount; }
+    public long getPaintNanosTotal() { return paintNanosTotal; }
+    public long getPeakPaintNanos() { return peakPaintNanos; }
+
+    // The simulation as of the last tick, safe to read from any thread
+    public int getEnemyCount() { return enemyCount; }
+    public int getBossCount() { return bossCount; }
+    public int getProjectileCount() { return projectileCount; }
+    public int getCurrentLevel() { return currentLevel; }
+    public int getLives() { return lives; }
+    public int getTickRate() { return tickRate; }
+    public float getEnemyCountMultiplier() { return enemyCountMultiplier; }
+
+    // Starts the peaks over, e.g. after a warm-up
+    public void resetPeaks() {
+        peakTickNanos = 0;
+        peakPaintNanos = 0;
+    }
+}
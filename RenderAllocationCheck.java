@@ -0,0 +1,127 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Locale;
+
+// Measures how much GameRenderer allocates per frame, drawing offscreen (works headless).
+// For each scenario it plays the same seeded game with a scripted player and reports bytes per
+// frame; only frames that rebuild a cached layer (the HUD once a second, a message when it
+// changes) may allocate, and that is Java2D's own text setup, so every other frame must allocate
+// nothing. It then redraws a frozen frame over and over, which must allocate nothing either.
+// Exits with status 1 if either isn't so.
+// Usage: java -Djava.awt.headless=true RenderAllocationCheck
+public class RenderAllocationCheck {
+    private static final int FRAMES_PER_ROUND = 600;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 10;
+    private static final int FROZEN_FRAMES = 1000;
+    private static final int MEASURED_PASSES = 5;
+    private static final long SEED = 12345;
+
+    public static void main(String[] args) {
+        if (!AllocationProbe.isSupported()) {
+            System.out.println("This JVM can't report per-thread allocation, nothing checked");
+            return;
+        }
+        BufferedImage screen = new BufferedImage(GameSimulation.WIDTH, GameSimulation.HEIGHT, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = screen.createGraphics();
+
+        boolean ok = check("level 1", g, 1);
+        ok &= check("level 3", g, 3);
+        ok &= check("boss level", g, GameSimulation.BOSS_LEVEL);
+        g.dispose();
+
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean check(String name, Graphics2D g, int level) {
+        GameRenderer renderer = new GameRenderer();
+        InputState input = new InputState();
+
+        // Let the JIT compile the render path before measuring
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            runRound(renderer, g, newSimulation(level), input);
+        }
+
+        // Frames that rebuilt no layer must allocate nothing. As below, one clean pass is enough.
+        long allocated = 0, unexplained = 0;
+        int allocatingFrames = 0, rebuildFrames = 0, unexplainedFrames = 0;
+        for (int pass = 0; pass < MEASURED_PASSES; pass++) {
+            allocated = unexplained = 0;
+            allocatingFrames = rebuildFrames = unexplainedFrames = 0;
+            for (int round = 0; round < MEASURED_ROUNDS; round++) {
+                GameSimulation simulation = newSimulation(level);
+                for (int frame = 0; frame < FRAMES_PER_ROUND; frame++) {
+                    step(simulation, input, frame);
+                    long rebuildsBefore = renderer.getLayerRebuilds();
+                    renderer.render(g, simulation, 0.5f, GameSimulation.WIDTH, GameSimulation.HEIGHT);
+                    long bytes = renderer.getLastFrameAllocatedBytes();
+                    boolean rebuilt = renderer.getLayerRebuilds() != rebuildsBefore;
+                    allocated += bytes;
+                    if (bytes > 0) {
+                        allocatingFrames++;
+                    }
+                    if (rebuilt) {
+                        rebuildFrames++;
+                    } else if (bytes > 0) {
+                        unexplained += bytes;
+                        unexplainedFrames++;
+                    }
+                }
+            }
+            if (unexplainedFrames == 0) {
+                break;
+            }
+        }
+        int frames = MEASURED_ROUNDS * FRAMES_PER_ROUND;
+
+        // Same picture every frame: nothing may be rebuilt, so nothing may be allocated.
+        // As in TickAllocationCheck, one clean pass is enough (the JVM may still be recompiling).
+        GameSimulation frozen = newSimulation(level);
+        long frozenAllocated = 0;
+        for (int pass = 0; pass < MEASURED_PASSES; pass++) {
+            frozenAllocated = 0;
+            for (int frame = 0; frame < FROZEN_FRAMES; frame++) {
+                renderer.render(g, frozen, 0.5f, GameSimulation.WIDTH, GameSimulation.HEIGHT);
+                frozenAllocated += renderer.getLastFrameAllocatedBytes();
+            }
+            if (frozenAllocated == 0) {
+                break;
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "%s: %.1f bytes/frame while playing (%d of %d frames allocated, %d rebuilt a layer; "
+                        + "%d bytes in %d frames that didn't%s), %d bytes over %d unchanged frames%s%n",
+                name, (double) allocated / frames, allocatingFrames, frames, rebuildFrames,
+                unexplained, unexplainedFrames, unexplainedFrames == 0 ? "" : "  <-- should be 0",
+                frozenAllocated, FROZEN_FRAMES, frozenAllocated == 0 ? "" : "  <-- should be 0");
+        return unexplainedFrames == 0 && frozenAllocated == 0;
+    }
+
+    private static GameSimulation newSimulation(int level) {
+        GameSimulation simulation = new GameSimulation(GameSimulation.DEFAULT_TICK_RATE, SEED);
+        simulation.skipCountdown();
+        simulation.jumpToLevel(level);
+        simulation.step(new InputState());
+        return simulation;
+    }
+
+    private static void runRound(GameRenderer renderer, Graphics2D g, GameSimulation simulation, InputState input) {
+        for (int frame = 0; frame < FRAMES_PER_ROUND; frame++) {
+            step(simulation, input, frame);
+            renderer.render(g, simulation, 0.5f, GameSimulation.WIDTH, GameSimulation.HEIGHT);
+        }
+    }
+
+    // Scripted player: circles around the arena, one tick per frame
+    private static void step(GameSimulation simulation, InputState input, int frame) {
+        input.clear();
+        int direction = (frame / simulation.ticks(0.5)) % 4;
+        if (direction == 0) input.up = true;
+        if (direction == 1) input.right = true;
+        if (direction == 2) input.down = true;
+        if (direction == 3) input.left = true;
+        simulation.step(input);
+    }
+}
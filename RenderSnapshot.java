@@ -0,0 +1,194 @@
+import java.awt.Color;
+
+// Everything GameRenderer draws, copied out of a GameSimulation after a tick, so the simulation
+// can run on its own thread while a frame is being painted from the copy.
+// Snapshots are reused (see SnapshotBuffer): capturing copies into arrays that only grow, so it
+// allocates nothing once the entity counts have peaked. The getters match GameSimulation's.
+// A co-op client captures from the last two WorldStates it received instead, interpolating
+// between them over the time the host took from one to the other.
+public class RenderSnapshot {
+    private final EntityStore enemies = new EntityStore(64);
+    private final EntityStore bossRobots = new EntityStore(64);
+    private final EntityStore projectiles = new EntityStore(64);
+
+    private int tickRate = GameSimulation.DEFAULT_TICK_RATE; // until the first capture
+    private long tickTime, tickNanos = 1_000_000_000L / tickRate; // when the last tick was due, for interpolating
+    private float robotX, robotY, prevRobotX, prevRobotY;
+    private int robotSize;
+    private boolean partnerJoined;
+    private float partnerX, partnerY, prevPartnerX, prevPartnerY;
+    private int foodX, foodY, foodSize;
+    private boolean foodCollected;
+    private Color materialColor; // null when no material is out
+    private int materialX, materialY;
+    private int survivalTime, scoreForNextLevel, currentLevel, countdown;
+    private int collectedMaterials;
+    private int lives, maxLives, invincibilityTimer;
+    private boolean gameOver, victory, swarmMode, bossLevel, weapon;
+    private boolean gameStarted, showGoScreen, showLevelUpMessage;
+
+    // Key events (as System.nanoTime) that first took effect in this snapshot, and a number telling
+    // published snapshots apart, so each event's latency is measured on the first frame showing it
+    private final long[] inputEventTimes = new long[InputQueue.MAX_TRACKED];
+    private int inputEventCount;
+    private long sequence;
+
+    // Copies the simulation as it is after the tick that was due at tickTime (System.nanoTime)
+    public void capture(GameSimulation sim, long tickTime) {
+        this.tickTime = tickTime;
+        inputEventCount = 0;
+        sequence = 0;
+        tickRate = sim.getTickRate();
+        tickNanos = 1_000_000_000L / tickRate;
+        enemies.copyForRendering(sim.getEnemies());
+        bossRobots.copyForRendering(sim.getBossRobots());
+        projectiles.copyForRendering(sim.getProjectiles());
+
+        robotX = sim.getRobotX();
+        robotY = sim.getRobotY();
+        prevRobotX = sim.getPrevRobotX();
+        prevRobotY = sim.getPrevRobotY();
+        robotSize = sim.getRobotSize();
+        partnerJoined = sim.isPartnerJoined();
+        partnerX = sim.getPartnerX();
+        partnerY = sim.getPartnerY();
+        prevPartnerX = sim.getPrevPartnerX();
+        prevPartnerY = sim.getPrevPartnerY();
+        foodX = sim.getFoodX();
+        foodY = sim.getFoodY();
+        foodSize = sim.getFoodSize();
+        foodCollected = sim.isFoodCollected();
+        GameSimulation.Material material = sim.getCurrentMaterial();
+        materialColor = material != null ? material.color : null;
+        materialX = material != null ? material.x : 0;
+        materialY = material != null ? material.y : 0;
+        survivalTime = sim.getSurvivalTime();
+        scoreForNextLevel = sim.getScoreForNextLevel();
+        currentLevel = sim.getCurrentLevel();
+        countdown = sim.getCountdown();
+        collectedMaterials = 0;
+        for (int level = 1; level < GameSimulation.BOSS_LEVEL; level++) {
+            if (sim.hasCollectedMaterial(level)) {
+                collectedMaterials |= 1 << level;
+            }
+        }
+        lives = sim.getLives();
+        maxLives = sim.getMaxLives();
+        invincibilityTimer = sim.getInvincibilityTimer();
+        gameOver = sim.isGameOver();
+        victory = sim.isVictory();
+        swarmMode = sim.isSwarmMode();
+        bossLevel = sim.isBossLevel();
+        weapon = sim.hasWeapon();
+        gameStarted = sim.isGameStarted();
+        showGoScreen = sim.isShowGoScreen();
+        showLevelUpMessage = sim.isShowLevelUpMessage();
+    }
+
+    // Copies a co-op host's world as received in current, moving things on from where they were
+    // in previous, which the host sent spanNanos earlier
+    public void capture(WorldState previous, WorldState current, long tickTime, long spanNanos) {
+        this.tickTime = tickTime;
+        inputEventCount = 0;
+        sequence = 0;
+        int[] globals = current.globals;
+        tickRate = globals[WorldState.TICK_RATE];
+        tickNanos = Math.max(1, spanNanos);
+        current.enemies.copyForRendering(previous.enemies, enemies);
+        current.bossRobots.copyForRendering(previous.bossRobots, bossRobots);
+        current.projectiles.copyForRendering(previous.projectiles, projectiles);
+
+        robotX = WorldState.position(globals[WorldState.ROBOT_X]);
+        robotY = WorldState.position(globals[WorldState.ROBOT_Y]);
+        prevRobotX = WorldState.position(previous.globals[WorldState.ROBOT_X]);
+        prevRobotY = WorldState.position(previous.globals[WorldState.ROBOT_Y]);
+        robotSize = globals[WorldState.ROBOT_SIZE];
+        partnerJoined = current.is(WorldState.PARTNER);
+        partnerX = WorldState.position(globals[WorldState.PARTNER_X]);
+        partnerY = WorldState.position(globals[WorldState.PARTNER_Y]);
+        prevPartnerX = WorldState.position(previous.globals[WorldState.PARTNER_X]);
+        prevPartnerY = WorldState.position(previous.globals[WorldState.PARTNER_Y]);
+        foodX = globals[WorldState.FOOD_X];
+        foodY = globals[WorldState.FOOD_Y];
+        foodSize = globals[WorldState.FOOD_SIZE];
+        foodCollected = current.is(WorldState.FOOD_COLLECTED);
+        int material = globals[WorldState.MATERIAL];
+        materialColor = GameSimulation.getMaterialColor(material);
+        materialX = globals[WorldState.MATERIAL_X];
+        materialY = globals[WorldState.MATERIAL_Y];
+        survivalTime = globals[WorldState.SURVIVAL_TIME];
+        scoreForNextLevel = globals[WorldState.SCORE_FOR_NEXT_LEVEL];
+        currentLevel = globals[WorldState.LEVEL];
+        countdown = globals[WorldState.COUNTDOWN];
+        collectedMaterials = globals[WorldState.COLLECTED_MATERIALS];
+        lives = globals[WorldState.LIVES];
+        maxLives = globals[WorldState.MAX_LIVES];
+        invincibilityTimer = globals[WorldState.INVINCIBILITY];
+        gameOver = current.is(WorldState.GAME_OVER);
+        victory = current.is(WorldState.VICTORY);
+        swarmMode = current.is(WorldState.SWARM);
+        bossLevel = current.is(WorldState.BOSS_LEVEL);
+        weapon = current.is(WorldState.WEAPON);
+        gameStarted = current.is(WorldState.GAME_STARTED);
+        showGoScreen = current.is(WorldState.SHOW_GO);
+        showLevelUpMessage = current.is(WorldState.SHOW_LEVEL_UP);
+    }
+
+    void setPublished(long sequence, InputQueue input) {
+        this.sequence = sequence;
+        inputEventCount = input != null ? input.takeDrainedTimes(inputEventTimes) : 0;
+    }
+
+    // How far the given time is between this tick and the next, from 0 to 1
+    public float getAlpha(long now) {
+        float alpha = (float) (now - tickTime) / tickNanos;
+        return Math.max(0, Math.min(alpha, 1));
+    }
+
+    public long getSequence() { return sequence; }
+    public int getInputEventCount() { return inputEventCount; }
+    public long getInputEventTime(int i) { return inputEventTimes[i]; }
+    public int getTickRate() { return tickRate; }
+    public float getRobotX() { return robotX; }
+    public float getRobotY() { return robotY; }
+    public float getPrevRobotX() { return prevRobotX; }
+    public float getPrevRobotY() { return prevRobotY; }
+    public int getRobotSize() { return robotSize; }
+    public boolean isPartnerJoined() { return partnerJoined; }
+    public float getPartnerX() { return partnerX; }
+    public float getPartnerY() { return partnerY; }
+    public float getPrevPartnerX() { return prevPartnerX; }
+    public float getPrevPartnerY() { return prevPartnerY; }
+    public EntityStore getEnemies() { return enemies; }
+    public EntityStore getBossRobots() { return bossRobots; }
+    public EntityStore getProjectiles() { return projectiles; }
+    public Color getProjectileColor(int type) { return GameSimulation.getProjectileColor(type); }
+    public boolean isGameOver() { return gameOver; }
+    public boolean isVictory() { return victory; }
+    public boolean isSwarmMode() { return swarmMode; }
+    public int getSurvivalTime() { return survivalTime; }
+    public int getSurvivalSeconds() { return survivalTime / tickRate; }
+    public int getFoodX() { return foodX; }
+    public int getFoodY() { return foodY; }
+    public int getFoodSize() { return foodSize; }
+    public boolean isFoodCollected() { return foodCollected; }
+    public int getCurrentLevel() { return currentLevel; }
+    public int getScoreForNextLevel() { return scoreForNextLevel; }
+    public boolean isShowLevelUpMessage() { return showLevelUpMessage; }
+    public boolean isBossLevel() { return bossLevel; }
+    public String getMaterialName(int level) { return GameSimulation.getMaterialName(level); }
+    public Color getMaterialColor(int level) { return GameSimulation.getMaterialColor(level); }
+    public Color getCurrentMaterialColor() { return materialColor; }
+    public int getCurrentMaterialX() { return materialX; }
+    public int getCurrentMaterialY() { return materialY; }
+    public boolean hasCollectedMaterial(int level) { return level < 32 && (collectedMaterials & (1 << level)) != 0; }
+    public int getCollectedMaterialCount() { return Integer.bitCount(collectedMaterials); }
+    public boolean hasWeapon() { return weapon; }
+    public int getLives() { return lives; }
+    public int getMaxLives() { return maxLives; }
+    public int getInvincibilityTimer() { return invincibilityTimer; }
+    public int getCountdownSeconds() { return countdown / tickRate + 1; }
+    public boolean isGameStarted() { return gameStarted; }
+    public boolean isShowGoScreen() { return showGoScreen; }
+    public boolean isPlaying() { return gameStarted && !showGoScreen; }
+}
@@ -0,0 +1,31 @@
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+
+// Keys for watching a replay (-Drobo.replay=<file>): LEFT/RIGHT jump 10 seconds back or ahead,
+// HOME goes back to the start, UP/DOWN double or halve the fast-forward speed.
+public class ReplayControls implements KeyListener {
+    private static final int JUMP_SECONDS = 10;
+
+    private final GameLoop loop;
+
+    public ReplayControls(GameLoop loop) {
+        this.loop = loop;
+    }
+
+    @Override
+    public void keyPressed(KeyEvent e) {
+        int key = e.getKeyCode();
+        int jump = JUMP_SECONDS * loop.getSimulation().getTickRate();
+        if (key == KeyEvent.VK_LEFT) loop.requestSeek(loop.getReplayTick() - jump);
+        if (key == KeyEvent.VK_RIGHT) loop.requestSeek(loop.getReplayTick() + jump);
+        if (key == KeyEvent.VK_HOME) loop.requestSeek(0);
+        if (key == KeyEvent.VK_UP) loop.setReplaySpeed(loop.getReplaySpeed() * 2);
+        if (key == KeyEvent.VK_DOWN) loop.setReplaySpeed(loop.getReplaySpeed() / 2);
+    }
+
+    @Override
+    public void keyReleased(KeyEvent e) {}
+
+    @Override
+    public void keyTyped(KeyEvent e) {}
+}
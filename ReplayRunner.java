@@ -0,0 +1,67 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+
+// Plays back a recording (made with -Drobo.record=<file>) headless, as fast as the CPU allows,
+// and checks that the game ends exactly where the recorded one did. A recording is a
+// reproducible workload: replay it before and after a change to compare ticks/s.
+// With --seek, each run first jumps to that many seconds in through the keyframes, reports how
+// long the jump took, and plays on from there, which also checks that keyframes restore exactly.
+// Usage: java ReplayRunner <file> [repeats] [--seek seconds]
+public class ReplayRunner {
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: java ReplayRunner <file> [repeats] [--seek seconds]");
+            System.exit(2);
+        }
+        int repeats = 1;
+        double seekSeconds = -1;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--seek")) {
+                seekSeconds = Double.parseDouble(args[++i]);
+            } else {
+                repeats = Integer.parseInt(args[i]);
+            }
+        }
+
+        boolean allMatched = true;
+        for (int run = 1; run <= repeats; run++) {
+            InputRecording recording = InputRecording.read(Paths.get(args[0]));
+            GameSimulation simulation = recording.createSimulation();
+            InputState input = new InputState();
+
+            if (seekSeconds >= 0) {
+                long target = Math.round(seekSeconds * recording.getTickRate());
+                long seekStart = System.nanoTime();
+                long simulated = recording.seek(target, simulation, input);
+                System.out.printf("run %d: seek to tick %d took %.3f ms (%d ticks simulated after the keyframe)%n",
+                        run, recording.getTick(), (System.nanoTime() - seekStart) / 1e6, simulated);
+            }
+
+            long start = System.nanoTime();
+            long ticks = 0;
+            while (recording.next(input, simulation)) {
+                simulation.step(input);
+                ticks++;
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            boolean matched = recording.getTick() == recording.getTicks() && recording.matches(simulation);
+            allMatched &= matched;
+            System.out.printf("run %d: %d ticks in %.3f s (%.0f ticks/s), %s: %s%n",
+                    run, ticks, seconds, ticks / seconds,
+                    describe(simulation.getCurrentLevel(), simulation.getLives(), simulation.getSurvivalTime(),
+                            InputRecording.outcomeOf(simulation)),
+                    matched ? "matches recording" : "DIFFERS from recording (" + recording.getTicks() + " ticks, "
+                            + describe(recording.getLevel(), recording.getLives(), recording.getSurvivalTime(),
+                                    recording.getOutcome()) + ")");
+        }
+        if (!allMatched) {
+            System.exit(1);
+        }
+    }
+
+    private static String describe(int level, int lives, int survivalTime, byte outcome) {
+        return "level " + level + ", " + lives + " lives, survival " + survivalTime + " ticks, "
+                + InputRecording.describe(outcome);
+    }
+}
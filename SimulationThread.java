@@ -0,0 +1,49 @@
+// Runs a GameLoop on its own thread and publishes a RenderSnapshot after every batch of ticks,
+// so painting and simulating can use two cores and a slow frame never holds up a tick (or the
+// other way round). Between batches it sleeps until the next tick is due.
+public class SimulationThread implements Runnable {
+    private final GameLoop loop;
+    private final InputQueue input;
+    private final SnapshotBuffer snapshots;
+    private volatile boolean running;
+    private Thread thread;
+
+    public SimulationThread(GameLoop loop, InputQueue input) {
+        this.loop = loop;
+        this.input = input;
+        this.snapshots = new SnapshotBuffer(loop.getSimulation());
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this, "Simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    // For the painting thread: the state after the latest tick
+    public RenderSnapshot latest() {
+        return snapshots.latest();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            if (loop.advance(input) > 0) {
+                snapshots.publish(loop.getSimulation(), loop.getLastTickTime(), input);
+            }
+            long sleepNanos = loop.getNanosUntilNextTick();
+            if (sleepNanos > 0) {
+                try {
+                    Thread.sleep(sleepNanos / 1_000_000, (int) (sleepNanos % 1_000_000));
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+}
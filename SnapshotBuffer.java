@@ -0,0 +1,51 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Lock-free triple buffer of RenderSnapshots between the simulation thread (one writer) and the
+// painting thread (one reader). The writer fills its own snapshot and swaps it with the "ready"
+// one; the reader swaps its own for the ready one if a newer one was published. Neither ever
+// waits for the other or allocates, and the reader always gets the most recent whole snapshot.
+public class SnapshotBuffer {
+    private static final int INDEX = 3, FRESH = 4; // ready packs a snapshot index and a fresh flag
+
+    private final RenderSnapshot[] snapshots = {new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot()};
+    private final AtomicInteger ready = new AtomicInteger(1);
+    private int writing = 0; // writer's own
+    private int reading = 2; // reader's own
+    private long published; // writer's own
+
+    // All three start out empty, for a co-op client that has no world until the host sends one
+    public SnapshotBuffer() {
+    }
+
+    // All three start out as the simulation's current state
+    public SnapshotBuffer(GameSimulation sim) {
+        long now = System.nanoTime();
+        for (RenderSnapshot snapshot : snapshots) {
+            snapshot.capture(sim, now);
+        }
+    }
+
+    // Simulation thread, after a tick; the key events drained for it go along for latency
+    public void publish(GameSimulation sim, long tickTime, InputQueue input) {
+        RenderSnapshot snapshot = snapshots[writing];
+        snapshot.capture(sim, tickTime);
+        snapshot.setPublished(++published, input);
+        writing = ready.getAndSet(writing | FRESH) & INDEX;
+    }
+
+    // Co-op client, after a snapshot from the host (see RenderSnapshot)
+    public void publish(WorldState previous, WorldState current, long receivedTime, long spanNanos) {
+        RenderSnapshot snapshot = snapshots[writing];
+        snapshot.capture(previous, current, receivedTime, spanNanos);
+        snapshot.setPublished(++published, null);
+        writing = ready.getAndSet(writing | FRESH) & INDEX;
+    }
+
+    // Painting thread: the newest published snapshot, which stays untouched until the next call
+    public RenderSnapshot latest() {
+        if ((ready.get() & FRESH) != 0) {
+            reading = ready.getAndSet(reading) & INDEX;
+        }
+        return snapshots[reading];
+    }
+}
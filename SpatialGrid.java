@@ -0,0 +1,83 @@
+import java.util.Arrays;
+
+// Uniform grid broadphase over the entities of one EntityStore.
+// Each entity is filed under the cell holding its top-left corner (a counting sort, so a
+// rebuild is linear and allocation-free). A query widens its box up and to the left by the
+// largest entity size, which is enough to find every entity whose box could overlap it.
+// Positions outside the grid are clamped to the border cells.
+public class SpatialGrid {
+    private final float cellSize;
+    private final int columns, rows;
+
+    private final int[] cellStart; // first entry of each cell, plus one end marker
+    private final int[] cellFill;
+    private int[] cellOfEntity = new int[64];
+    private int[] entries = new int[64]; // entity indices ordered by cell
+    private int[] results = new int[64];
+    private int maxEntitySize;
+
+    public SpatialGrid(int width, int height, int cellSize) {
+        this.cellSize = cellSize;
+        this.columns = (width + cellSize - 1) / cellSize;
+        this.rows = (height + cellSize - 1) / cellSize;
+        cellStart = new int[columns * rows + 1];
+        cellFill = new int[columns * rows];
+    }
+
+    // Files every entity in the store; indices stay valid until the store changes
+    public void build(EntityStore store) {
+        int count = store.count();
+        if (entries.length < count) {
+            int capacity = Math.max(count, entries.length * 2);
+            entries = new int[capacity];
+            cellOfEntity = new int[capacity];
+            results = new int[capacity];
+        }
+
+        Arrays.fill(cellStart, 0);
+        maxEntitySize = 0;
+        for (int i = 0; i < count; i++) {
+            int cell = row(store.y[i]) * columns + column(store.x[i]);
+            cellOfEntity[i] = cell;
+            cellStart[cell + 1]++;
+            maxEntitySize = Math.max(maxEntitySize, store.size[i]);
+        }
+        for (int cell = 0; cell < columns * rows; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        System.arraycopy(cellStart, 0, cellFill, 0, cellFill.length);
+        for (int i = 0; i < count; i++) {
+            entries[cellFill[cellOfEntity[i]]++] = i;
+        }
+    }
+
+    // Collects the indices of entities that may overlap the box; read them with result()
+    public int query(float minX, float minY, float maxX, float maxY) {
+        int firstColumn = column(minX - maxEntitySize), lastColumn = column(maxX);
+        int firstRow = row(minY - maxEntitySize), lastRow = row(maxY);
+
+        int found = 0;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int cell = row * columns + column;
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    results[found++] = entries[k];
+                }
+            }
+        }
+        return found;
+    }
+
+    public int result(int k) {
+        return results[k];
+    }
+
+    private int column(float x) {
+        // Truncation only differs from floor below zero, where the clamp wins anyway
+        return Math.max(0, Math.min(columns - 1, (int) (x / cellSize)));
+    }
+
+    private int row(float y) {
+        return Math.max(0, Math.min(rows - 1, (int) (y / cellSize)));
+    }
+}
@@ -0,0 +1,346 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+// Rasterizes every entity look once into a translucent image that matches the screen,
+// so drawing an entity each frame is a single drawImage instead of a dozen fills.
+// Sprites are built lazily the first time a type/size/colour is asked for, with or without
+// antialiasing; GameRenderer makes a new cache when the render quality changes.
+// prewarm builds them all up front instead, e.g. while the splash screen is showing.
+public class SpriteCache {
+    private static final int MAX_SIZE = 128;
+
+    private final GraphicsConfiguration config;
+    private final boolean antialias;
+
+    private final Sprite[] enemies = new Sprite[MAX_SIZE + 1];
+    private final Sprite[] bosses = new Sprite[MAX_SIZE + 1];
+    private final Sprite[] players = new Sprite[16];
+    private Sprite food;
+    private final ArrayList<Sprite> materials = new ArrayList<>();
+    private final ArrayList<Sprite> projectiles = new ArrayList<>();
+
+    // An image plus where its top-left sits relative to the entity position
+    public static class Sprite {
+        final BufferedImage image;
+        final int offsetX, offsetY;
+        final int rgb; // only used for colour-keyed sprites
+
+        Sprite(BufferedImage image, int offsetX, int offsetY, int rgb) {
+            this.image = image;
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+            this.rgb = rgb;
+        }
+
+        public void draw(Graphics g, int x, int y) {
+            g.drawImage(image, x + offsetX, y + offsetY, null);
+        }
+    }
+
+    public SpriteCache(GraphicsConfiguration config, boolean antialias) {
+        this.config = config;
+        this.antialias = antialias;
+    }
+
+    public Sprite enemy(int size) {
+        if (enemies[size] == null) {
+            BufferedImage image = createImage(size + 11, size + 11);
+            Graphics2D g = createGraphics(image);
+            paintEnemy(g, 5, 10, size);
+            g.dispose();
+            enemies[size] = new Sprite(image, -5, -10, 0);
+        }
+        return enemies[size];
+    }
+
+    public Sprite boss(int size) {
+        if (bosses[size] == null) {
+            BufferedImage image = createImage(size + 1, size + 21);
+            Graphics2D g = createGraphics(image);
+            paintBoss(g, 0, 10, size);
+            g.dispose();
+            bosses[size] = new Sprite(image, 0, -10, 0);
+        }
+        return bosses[size];
+    }
+
+    // tier is how upgraded the robot body looks (0-3), see GameRenderer
+    public Sprite player(int size, int tier, boolean weapon, boolean shield) {
+        int key = tier * 4 + (weapon ? 2 : 0) + (shield ? 1 : 0);
+        if (players[key] == null) {
+            BufferedImage image = createImage(size + 11, size + 14);
+            Graphics2D g = createGraphics(image);
+            paintPlayer(g, 5, 8, size, tier, weapon, shield);
+            g.dispose();
+            players[key] = new Sprite(image, -5, -8, 0);
+        }
+        return players[key];
+    }
+
+    public Sprite food(int size) {
+        if (food == null) {
+            BufferedImage image = createImage(size + 11, size + 11);
+            Graphics2D g = createGraphics(image);
+            paintFood(g, 5, 5, size);
+            g.dispose();
+            food = new Sprite(image, -5, -5, 0);
+        }
+        return food;
+    }
+
+    public Sprite material(Color color) {
+        Sprite sprite = find(materials, color);
+        if (sprite == null) {
+            BufferedImage image = createImage(36, 36);
+            Graphics2D g = createGraphics(image);
+            paintMaterial(g, 5, 5, color);
+            g.dispose();
+            sprite = new Sprite(image, -5, -5, color.getRGB());
+            materials.add(sprite);
+        }
+        return sprite;
+    }
+
+    public Sprite projectile(Color color) {
+        Sprite sprite = find(projectiles, color);
+        if (sprite == null) {
+            BufferedImage image = createImage(21, 21);
+            Graphics2D g = createGraphics(image);
+            paintProjectile(g, 5, 5, color);
+            g.dispose();
+            sprite = new Sprite(image, -5, -5, color.getRGB());
+            projectiles.add(sprite);
+        }
+        return sprite;
+    }
+
+    // Builds every sprite the game can ask for, as independent jobs on the executor. Each job
+    // fills its own slots, so they can run in parallel; the returned future completes once all
+    // are done, and whoever then gets the cache from it sees every sprite.
+    public CompletableFuture<SpriteCache> prewarm(Executor executor) {
+        ArrayList<CompletableFuture<?>> jobs = new ArrayList<>();
+        jobs.add(CompletableFuture.runAsync(() -> enemy(GameSimulation.ENEMY_SIZE), executor));
+        for (int size : GameSimulation.getBossSizes()) {
+            jobs.add(CompletableFuture.runAsync(() -> boss(size), executor));
+        }
+        int robotSize = GameSimulation.ROBOT_SIZE;
+        for (int tier = 0; tier < 4; tier++) {
+            int bodyTier = tier;
+            jobs.add(CompletableFuture.runAsync(() -> {
+                for (int look = 0; look < 4; look++) {
+                    player(robotSize, bodyTier, (look & 2) != 0, (look & 1) != 0);
+                }
+            }, executor));
+        }
+        jobs.add(CompletableFuture.runAsync(() -> food(GameSimulation.FOOD_SIZE), executor));
+        // The colour lists aren't safe to grow from two threads, so one job each
+        jobs.add(CompletableFuture.runAsync(() -> {
+            for (int level = 1; level < GameSimulation.BOSS_LEVEL; level++) {
+                material(GameSimulation.getMaterialColor(level));
+            }
+        }, executor));
+        jobs.add(CompletableFuture.runAsync(() -> {
+            for (int type = 0; type < GameSimulation.BOSS_LEVEL; type++) {
+                projectile(GameSimulation.getProjectileColor(type));
+            }
+        }, executor));
+        return CompletableFuture.allOf(jobs.toArray(new CompletableFuture<?>[0])).thenApply(done -> this);
+    }
+
+    // Only a handful of colours exist, so a linear scan beats hashing (and doesn't box)
+    private static Sprite find(ArrayList<Sprite> sprites, Color color) {
+        int rgb = color.getRGB();
+        for (int i = 0; i < sprites.size(); i++) {
+            if (sprites.get(i).rgb == rgb) {
+                return sprites.get(i);
+            }
+        }
+        return null;
+    }
+
+    private Graphics2D createGraphics(BufferedImage image) {
+        Graphics2D g = image.createGraphics();
+        if (antialias) {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        }
+        return g;
+    }
+
+    private BufferedImage createImage(int width, int height) {
+        if (config != null) {
+            return config.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+
+    static void paintEnemy(Graphics2D g, int x, int y, int size) {
+        // Base robot body with gradient
+        GradientPaint gradient = new GradientPaint(
+                x, y, new Color(180, 30, 30),
+                x + size, y + size, new Color(220, 50, 50)
+        );
+        g.setPaint(gradient);
+        g.fillRoundRect(x, y, size, size, 8, 8);
+
+        // Robot head/top
+        g.setColor(new Color(100, 100, 100));
+        g.fillRoundRect(x + 5, y - 10, size - 10, 15, 5, 5);
+
+        // Eyes
+        g.setColor(new Color(255, 255, 0)); // Yellow eyes
+        g.fillOval(x + 8, y + 8, 6, 6);
+        g.fillOval(x + size - 14, y + 8, 6, 6);
+
+        // Angry eyebrows
+        g.setColor(Color.BLACK);
+        g.drawLine(x + 5, y + 6, x + 13, y + 10);
+        g.drawLine(x + size - 5, y + 6, x + size - 13, y + 10);
+
+        // Mouth
+        g.drawLine(x + 10, y + 20, x + size - 10, y + 20);
+
+        // Mechanical arms
+        g.setColor(new Color(150, 150, 150));
+        g.fillRect(x - 5, y + size/2 - 3, 5, 6);
+        g.fillRect(x + size, y + size/2 - 3, 5, 6);
+    }
+
+    static void paintBoss(Graphics2D g, int x, int y, int size) {
+        // Boss robot gradients and effects
+        GradientPaint gradient = new GradientPaint(
+                x, y, new Color(120, 0, 0),
+                x + size, y + size, new Color(200, 0, 50)
+        );
+        g.setPaint(gradient);
+        g.fillRoundRect(x, y, size, size, 15, 15);
+
+        // Draw metallic details
+        g.setColor(new Color(150, 150, 150));
+        g.fillRect(x + size/4, y - 10, size/2, 10);
+        g.fillRect(x + size/4, y + size, size/2, 10);
+
+        // Draw eyes
+        g.setColor(new Color(255, 255, 0)); // Yellow eyes
+        g.fillOval(x + size/4, y + size/4, size/6, size/6);
+        g.fillOval(x + size - size/4 - size/6, y + size/4, size/6, size/6);
+
+        // Add glowing effect around eyes
+        g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f));
+        g.setColor(new Color(255, 255, 100));
+        g.fillOval(x + size/4 - 2, y + size/4 - 2, size/6 + 4, size/6 + 4);
+        g.fillOval(x + size - size/4 - size/6 - 2, y + size/4 - 2, size/6 + 4, size/6 + 4);
+        g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f));
+
+        // Mouth
+        g.setColor(new Color(50, 50, 50));
+        g.fillRect(x + size/4, y + size/2, size/2, size/8);
+
+        // Teeth
+        g.setColor(Color.WHITE);
+        for (int i = 0; i < 4; i++) {
+            g.fillRect(x + size/4 + i * (size/2)/4, y + size/2, size/10, size/16);
+        }
+    }
+
+    static void paintPlayer(Graphics2D g, int x, int y, int size, int tier, boolean weapon, boolean shield) {
+        // Player robot color based on collected materials
+        Color robotColor = new Color(0, 150, 255); // Default blue
+        if (tier == 1) {
+            robotColor = new Color(50, 200, 255); // Upgraded blue
+        } else if (tier == 2) {
+            robotColor = new Color(100, 200, 255); // Even better blue
+        } else if (tier == 3) {
+            robotColor = new Color(100, 255, 255); // Cyan for all materials
+        }
+
+        // Draw robot body with shadow
+        g.setColor(new Color(0, 0, 0, 128)); // Shadow color
+        g.fillRoundRect(x + 3, y + 3, size, size, 10, 10);
+
+        // Draw robot body
+        g.setColor(robotColor);
+        g.fillRoundRect(x, y, size, size, 10, 10);
+
+        // Draw robot face/details
+        g.setColor(Color.WHITE);
+        // Eyes
+        g.fillOval(x + 7, y + 8, 6, 6);
+        g.fillOval(x + size - 13, y + 8, 6, 6);
+
+        // Draw robot mouth
+        g.setColor(Color.BLACK);
+        g.drawLine(x + 8, y + 20, x + size - 8, y + 20);
+
+        // Draw antennas
+        g.setColor(Color.GRAY);
+        g.fillRect(x + 10, y - 5, 2, 5);
+        g.fillRect(x + size - 12, y - 5, 2, 5);
+        g.setColor(Color.RED);
+        g.fillOval(x + 9, y - 8, 4, 4);
+        g.fillOval(x + size - 13, y - 8, 4, 4);
+
+        // Draw weapon
+        if (weapon) {
+            g.setColor(new Color(255, 100, 100));
+            g.fillRect(x - 5, y + size/2 - 2, 5, 4);
+            g.fillRect(x + size, y + size/2 - 2, 5, 4);
+        }
+
+        // Draw shield effect
+        if (shield) {
+            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.3f));
+            g.setColor(new Color(100, 100, 255));
+            g.fillOval(x - 5, y - 5, size + 10, size + 10);
+            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f));
+        }
+    }
+
+    static void paintFood(Graphics2D g, int x, int y, int size) {
+        // Draw power cell base
+        g.setColor(new Color(50, 50, 50));
+        g.fillRect(x, y, size, size);
+
+        // Draw inner energy
+        g.setColor(new Color(0, 255, 200));
+        g.fillRect(x + 4, y + 4, size - 8, size - 8);
+
+        // Add glow effect
+        g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.3f));
+        g.setColor(new Color(0, 255, 200));
+        g.fillOval(x - 5, y - 5, size + 10, size + 10);
+        g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f));
+    }
+
+    static void paintMaterial(Graphics2D g, int x, int y, Color color) {
+        // Create a metallic-looking material
+        g.setColor(new Color(50, 50, 50)); // Dark border
+        g.fillRect(x - 2, y - 2, 29, 29);
+
+        // Material color
+        g.setColor(color);
+        g.fillRect(x, y, 25, 25);
+
+        // Add shine effect
+        g.setColor(new Color(255, 255, 255, 80));
+        g.fillRect(x + 5, y + 2, 15, 5);
+
+        // Add glow effect
+        g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.2f));
+        g.setColor(color);
+        g.fillOval(x - 5, y - 5, 35, 35);
+        g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f));
+    }
+
+    static void paintProjectile(Graphics2D g, int x, int y, Color color) {
+        g.setColor(color);
+        g.fillOval(x, y, 10, 10);
+        // Add glow effect
+        g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f));
+        g.fillOval(x - 5, y - 5, 20, 20);
+        g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f));
+    }
+}
@@ -0,0 +1,75 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+// Built-in load test: climbs the levels of endless swarm mode with an invulnerable player and
+// reports the highest level and entity count at which a frame (one tick plus drawing it
+// offscreen) still fits the target frame rate. Each level is played for a few seconds' worth of
+// frames, back to back, so the result doesn't depend on the speed of the machine's display.
+// Stops after the first level that can't hold the rate, or at the last level given.
+// Usage: java -Djava.awt.headless=true SwarmLoadTest [targetFps] [maxLevel] [--no-render]
+public class SwarmLoadTest {
+    private static final int SECONDS_PER_LEVEL = 3;
+
+    public static void main(String[] args) {
+        int targetFps = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+        int maxLevel = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        boolean render = !(args.length > 2 && args[2].equals("--no-render"));
+
+        GameSimulation simulation = new GameSimulation(GameSimulation.DEFAULT_TICK_RATE, 1);
+        simulation.setSwarmMode(true);
+        simulation.setInvulnerable(true);
+        simulation.skipCountdown();
+
+        GameRenderer renderer = new GameRenderer();
+        BufferedImage screen = new BufferedImage(GameSimulation.WIDTH, GameSimulation.HEIGHT, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = screen.createGraphics();
+        FrameRateTracker frameRate = new FrameRateTracker(targetFps);
+        InputState input = new InputState();
+
+        // Ticks per frame at the target rate, so a frame always covers the same game time
+        double ticksPerFrame = (double) simulation.getTickRate() / targetFps;
+        double tickDebt = 0;
+        int frame = 0;
+
+        System.out.printf("%5s %9s %9s %9s %12s%n", "level", "enemies", "bosses", "fps", "ms/frame");
+        for (int level = 1; level <= maxLevel; level++) {
+            simulation.jumpToLevel(level);
+
+            long levelNanos = 0;
+            int levelFrames = SECONDS_PER_LEVEL * targetFps;
+            for (int i = 0; i < levelFrames; i++, frame++) {
+                // Scripted player: circles around the arena (firing, once there are bosses)
+                input.clear();
+                int direction = (frame / targetFps) % 4;
+                if (direction == 0) input.up = true;
+                if (direction == 1) input.right = true;
+                if (direction == 2) input.down = true;
+                if (direction == 3) input.left = true;
+
+                long start = System.nanoTime();
+                tickDebt += ticksPerFrame;
+                for (; tickDebt >= 1; tickDebt--) {
+                    simulation.step(input);
+                }
+                if (render) {
+                    renderer.render(g, simulation, 0.5f, GameSimulation.WIDTH, GameSimulation.HEIGHT);
+                }
+                long frameNanos = System.nanoTime() - start;
+
+                frameRate.frame(frameNanos, simulation);
+                levelNanos += frameNanos;
+            }
+
+            System.out.printf("%5d %9d %9d %9.1f %12.3f%n", simulation.getCurrentLevel(),
+                    simulation.getEnemies().count(), simulation.getBossRobots().count(),
+                    levelFrames * 1e9 / levelNanos, levelNanos / 1e6 / levelFrames);
+            // The first window of a level also holds the end of the last, so wait for the rest
+            if (frameRate.getMissedWindows() >= SECONDS_PER_LEVEL - 1) {
+                break;
+            }
+        }
+        g.dispose();
+
+        System.out.println(frameRate.summary() + (render ? "" : " (simulation only)"));
+    }
+}
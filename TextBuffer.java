@@ -0,0 +1,87 @@
+import java.awt.Graphics;
+
+// Reusable character buffer for building HUD text without creating Strings every frame.
+// Usage: text.clear().append("Level: ").append(level).draw(g, x, y);
+public class TextBuffer {
+    private final char[] chars;
+    private int length;
+
+    public TextBuffer(int capacity) {
+        chars = new char[capacity];
+    }
+
+    public TextBuffer clear() {
+        length = 0;
+        return this;
+    }
+
+    public TextBuffer append(String text) {
+        int count = Math.min(text.length(), chars.length - length);
+        text.getChars(0, count, chars, length);
+        length += count;
+        return this;
+    }
+
+    public TextBuffer append(char c) {
+        if (length < chars.length) {
+            chars[length++] = c;
+        }
+        return this;
+    }
+
+    public TextBuffer append(long value) {
+        // Works on the negative value, as -Long.MIN_VALUE doesn't fit in a long
+        if (value < 0) {
+            append('-');
+        } else {
+            value = -value;
+        }
+        // Write the digits backwards at the end of the buffer, then reverse them into place
+        int start = length;
+        do {
+            append((char) ('0' - value % 10));
+            value /= 10;
+        } while (value < 0);
+        for (int i = start, j = length - 1; i < j; i++, j--) {
+            char c = chars[i];
+            chars[i] = chars[j];
+            chars[j] = c;
+        }
+        return this;
+    }
+
+    // Appends value with the given number of decimals, e.g. 12.5 with one decimal
+    public TextBuffer append(double value, int decimals) {
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+        long scale = 1;
+        for (int i = 0; i < decimals; i++) {
+            scale *= 10;
+        }
+        long scaled = Math.round(value * scale);
+        append(scaled / scale);
+        if (decimals > 0) {
+            append('.');
+            long fraction = scaled % scale;
+            for (long digit = scale / 10; digit > 0; digit /= 10) {
+                append((char) ('0' + (fraction / digit) % 10));
+            }
+        }
+        return this;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public void draw(Graphics g, int x, int y) {
+        g.drawChars(chars, 0, length, x, y);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+}
@@ -0,0 +1,81 @@
+// Verifies that a steady-state simulation tick allocates nothing.
+// Runs a regular level and the boss level (firing, splitting) with a scripted player and
+// measures allocated bytes per tick with ThreadMXBean. Exits with status 1 if any tick allocates.
+// Usage: java TickAllocationCheck [tickRate]
+public class TickAllocationCheck {
+    private static final int TICKS_PER_ROUND = 600;
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURED_ROUNDS = 50;
+    private static final int MEASURED_PASSES = 5;
+
+    public static void main(String[] args) {
+        if (!AllocationProbe.isSupported()) {
+            System.out.println("This JVM can't report per-thread allocation, nothing checked");
+            return;
+        }
+        int tickRate = args.length > 0 ? Integer.parseInt(args[0]) : GameSimulation.DEFAULT_TICK_RATE;
+
+        boolean ok = check("level 4", tickRate, 4);
+        ok &= check("boss level", tickRate, GameSimulation.BOSS_LEVEL);
+
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean check(String name, int tickRate, int level) {
+        InputState input = new InputState();
+
+        // Let the JIT compile the tick before measuring
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            runRound(newSimulation(tickRate, level), input);
+        }
+
+        // A tick that allocates does so in every pass. The JVM itself occasionally allocates a few
+        // bytes on our thread while it is still recompiling, so one clean pass is enough.
+        long allocated = 0;
+        long ticks = 0;
+        for (int pass = 0; pass < MEASURED_PASSES; pass++) {
+            allocated = 0;
+            ticks = 0;
+            for (int round = 0; round < MEASURED_ROUNDS; round++) {
+                GameSimulation simulation = newSimulation(tickRate, level);
+                long before = AllocationProbe.currentThreadAllocatedBytes();
+                ticks += runRound(simulation, input);
+                allocated += AllocationProbe.currentThreadAllocatedBytes() - before;
+            }
+            if (allocated == 0) {
+                break;
+            }
+        }
+
+        System.out.printf("%s: %d bytes over %d ticks (%.3f bytes/tick)%n",
+                name, allocated, ticks, (double) allocated / ticks);
+        return allocated == 0;
+    }
+
+    private static GameSimulation newSimulation(int tickRate, int level) {
+        GameSimulation simulation = new GameSimulation(tickRate);
+        simulation.skipCountdown();
+        simulation.jumpToLevel(level);
+        // One tick outside the measurement so lazily sized buffers exist
+        simulation.step(new InputState());
+        return simulation;
+    }
+
+    // Scripted player: circles around the arena, which also fires in every direction in the boss level
+    private static int runRound(GameSimulation simulation, InputState input) {
+        int leg = simulation.ticks(0.5);
+        for (int tick = 0; tick < TICKS_PER_ROUND; tick++) {
+            input.clear();
+            int direction = (tick / leg) % 4;
+            if (direction == 0) input.up = true;
+            if (direction == 1) input.right = true;
+            if (direction == 2) input.down = true;
+            if (direction == 3) input.left = true;
+            input.restart = true;
+            simulation.step(input);
+        }
+        return TICKS_PER_ROUND;
+    }
+}
@@ -0,0 +1,83 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+// Plays throwaway games for a while before the real one starts (the splash screen shows
+// meanwhile), so that by "GO!" the JIT has compiled movement, collisions, projectiles, boss
+// splits and drawing with C2 instead of the first seconds of play running interpreted.
+// The worlds cycle through the kinds of play the game has: enemies chasing the player on a
+// normal level, the boss level with the weapon firing and bosses splitting, and a crowded swarm
+// level; each tick is drawn to an offscreen image like a frame of the real game.
+// Nothing here is shared with the real game, so it can run on any thread, and none of it fires
+// GameEvents, so a flight recording only shows the real game.
+public class Warmup {
+    public static final long DEFAULT_MILLIS = 2000;
+    private static final double SECONDS_PER_WORLD = 10;
+    private static final int SWARM_LEVEL = 8;
+
+    private static volatile long lastRunNanos; // 0 until a warm-up has finished
+
+    // Runs until budgetNanos have passed; config is the display the game will draw to (or null)
+    public static void run(long budgetNanos, GraphicsConfiguration config) {
+        long start = System.nanoTime();
+        GameRenderer renderer = new GameRenderer();
+        renderer.setEventsEnabled(false);
+        BufferedImage screen = config != null
+                ? config.createCompatibleImage(GameSimulation.WIDTH, GameSimulation.HEIGHT)
+                : new BufferedImage(GameSimulation.WIDTH, GameSimulation.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = screen.createGraphics();
+        InputState input = new InputState();
+        try {
+            for (int world = 0; System.nanoTime() - start < budgetNanos; world++) {
+                play(createWorld(world % 3, world), renderer, g, input, start, budgetNanos);
+            }
+        } finally {
+            g.dispose();
+        }
+        lastRunNanos = System.nanoTime() - start;
+    }
+
+    private static GameSimulation createWorld(int kind, long seed) {
+        GameSimulation sim = new GameSimulation(GameSimulation.DEFAULT_TICK_RATE, seed);
+        sim.setEventsEnabled(false);
+        sim.skipCountdown();
+        if (kind == 0) {
+            // A normal level, where the player can still be caught and lose lives
+            sim.jumpToLevel(3);
+        } else if (kind == 1) {
+            // All materials collected, so the weapon fires at the boss and its splits
+            sim.setInvulnerable(true);
+            sim.jumpToLevel(GameSimulation.BOSS_LEVEL);
+        } else {
+            sim.setSwarmMode(true);
+            sim.setInvulnerable(true);
+            sim.jumpToLevel(SWARM_LEVEL);
+        }
+        return sim;
+    }
+
+    private static void play(GameSimulation sim, GameRenderer renderer, Graphics2D g, InputState input,
+                             long start, long budgetNanos) {
+        int ticks = sim.ticks(SECONDS_PER_WORLD);
+        int leg = sim.ticks(0.5);
+        for (int tick = 0; tick < ticks && !sim.isGameOver(); tick++) {
+            // Scripted player: zigzags, changing direction (and firing direction) every half second
+            input.clear();
+            int direction = (tick / leg) % 4;
+            if (direction == 0) input.up = true;
+            if (direction == 1) input.right = true;
+            if (direction == 2) input.down = true;
+            if (direction == 3) input.left = true;
+
+            sim.step(input);
+            renderer.render(g, sim, 0.5f, GameSimulation.WIDTH, GameSimulation.HEIGHT);
+            if (System.nanoTime() - start >= budgetNanos) {
+                return;
+            }
+        }
+    }
+
+    // How long the last finished warm-up took, in milliseconds (0 if none ran)
+    public static long getLastRunMillis() {
+        return lastRunNanos / 1_000_000;
+    }
+}
@@ -0,0 +1,125 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Startup report: tick times over the first seconds of play, second by second, in a fresh JVM
+// without warm-up and in one that ran Warmup first, as the splash screen does.
+// Each side is its own JVM, since whatever the JIT compiled for one would help the other. Ticks
+// are paced in real time like in the game, because the JIT compiles in the background meanwhile.
+// Usage: java WarmupReport [warmupMillis] [--swarm]
+public class WarmupReport {
+    private static final int SECONDS = 10;
+    private static final long SEED = 42;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && args[0].equals("--child")) {
+            play(Long.parseLong(args[1]), args.length > 2 && args[2].equals("--swarm"));
+            return;
+        }
+        long warmupMillis = args.length > 0 && !args[0].startsWith("--") ? Long.parseLong(args[0]) : Warmup.DEFAULT_MILLIS;
+        boolean swarm = args.length > 0 && args[args.length - 1].equals("--swarm");
+
+        List<String[]> cold = runChild(0, swarm);
+        List<String[]> warm = runChild(warmupMillis, swarm);
+
+        System.out.printf("Tick times in the first %d s of play%s, ms: cold JVM vs. after %d ms of warm-up%n",
+                SECONDS, swarm ? " (swarm mode)" : "", warmupMillis);
+        System.out.printf("%6s %10s %10s %10s   %10s %10s %10s%n",
+                "second", "cold mean", "cold p99", "cold max", "warm mean", "warm p99", "warm max");
+        for (int i = 0; i < Math.min(cold.size(), warm.size()); i++) {
+            String[] c = cold.get(i), w = warm.get(i);
+            System.out.printf("%6s %10.3f %10.3f %10.3f   %10.3f %10.3f %10.3f%n", c[0],
+                    millis(c[1]), millis(c[2]), millis(c[3]), millis(w[1]), millis(w[2]), millis(w[3]));
+        }
+    }
+
+    private static double millis(String nanos) {
+        return Long.parseLong(nanos) / 1e6;
+    }
+
+    // Runs play() in a new JVM with the same classpath; one line of fields per second, then "all"
+    private static List<String[]> runChild(long warmupMillis, boolean swarm) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("-Djava.awt.headless=true");
+        command.add("WarmupReport");
+        command.add("--child");
+        command.add(String.valueOf(warmupMillis));
+        if (swarm) {
+            command.add("--swarm");
+        }
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        List<String[]> lines = new ArrayList<>();
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            for (String line = out.readLine(); line != null; line = out.readLine()) {
+                lines.add(line.split(" "));
+            }
+        }
+        if (process.waitFor() != 0) {
+            throw new IOException("Measuring JVM failed with exit code " + process.exitValue());
+        }
+        return lines;
+    }
+
+    // Plays the start of a game with a scripted player, printing "second mean p99 max" in
+    // nanoseconds for each second and for all of them
+    private static void play(long warmupMillis, boolean swarm) {
+        if (warmupMillis > 0) {
+            Warmup.run(TimeUnit.MILLISECONDS.toNanos(warmupMillis), null);
+        }
+        GameSimulation sim = new GameSimulation(GameSimulation.DEFAULT_TICK_RATE, SEED);
+        sim.setSwarmMode(swarm);
+        sim.skipCountdown();
+        InputState input = new InputState();
+        Histogram second = new Histogram(), all = new Histogram();
+        long secondNanos = 0, allNanos = 0;
+
+        int ticksPerSecond = sim.getTickRate();
+        long tickNanos = 1_000_000_000L / ticksPerSecond;
+        long due = System.nanoTime();
+        for (int tick = 1; tick <= SECONDS * ticksPerSecond; tick++) {
+            // Same scripted player as HeadlessRunner
+            int leg = (tick / sim.ticks(1.5)) % 4;
+            input.clear();
+            if (leg == 0) input.up = true;
+            if (leg == 1) input.right = true;
+            if (leg == 2) input.down = true;
+            if (leg == 3) input.left = true;
+
+            due += tickNanos;
+            for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            long start = System.nanoTime();
+            sim.step(input);
+            long nanos = System.nanoTime() - start;
+            if (sim.isGameOver()) {
+                sim.resetGame();
+                sim.skipCountdown();
+            }
+
+            second.record(nanos);
+            all.record(nanos);
+            secondNanos += nanos;
+            allNanos += nanos;
+            if (tick % ticksPerSecond == 0) {
+                print(String.valueOf(tick / ticksPerSecond), second, secondNanos);
+                second.reset();
+                secondNanos = 0;
+            }
+        }
+        print("all", all, allNanos);
+    }
+
+    private static void print(String label, Histogram ticks, long totalNanos) {
+        System.out.println(label + " " + totalNanos / ticks.count() + " " + ticks.percentile(0.99) + " " + ticks.max());
+    }
+}
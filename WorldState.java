@@ -0,0 +1,403 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// What a co-op client knows of the game: the host's world after one tick, quantised for the
+// network, and the delta coding that sends it (see CoopServer).
+// Positions are kept in eighths of a pixel, finer than anything is drawn. Entities are known by
+// their EntityStore handle, so one that moved is recognised from tick to tick; within a state
+// they are sorted by slot (the handle's low bits), so two states line up in a single pass.
+// A delta against a base state the client already has sends:
+//   - a bit mask of the global fields (level, lives, pickups, robots...) that changed, and the
+//     difference for each
+//   - per store, the slots of the entities that are gone, then for each new or changed entity a
+//     bit mask of its changed fields and their new values, positions as differences
+// Numbers are variable-length (7 bits to a byte), and differences are zigzag coded so small
+// negative ones stay short. Against no base everything counts as new: a full snapshot.
+// States are reused: capturing and decoding only allocate when the entity counts outgrow them.
+public class WorldState {
+    public static final int POSITION_SCALE = 8;
+
+    // Global fields
+    static final int TICK_RATE = 0, LEVEL = 1, SURVIVAL_TIME = 2, SCORE_FOR_NEXT_LEVEL = 3, COUNTDOWN = 4,
+            LIVES = 5, MAX_LIVES = 6, INVINCIBILITY = 7, COLLECTED_MATERIALS = 8, FLAGS = 9,
+            FOOD_X = 10, FOOD_Y = 11, FOOD_SIZE = 12, MATERIAL = 13, MATERIAL_X = 14, MATERIAL_Y = 15,
+            ROBOT_X = 16, ROBOT_Y = 17, ROBOT_SIZE = 18, PARTNER_X = 19, PARTNER_Y = 20;
+    private static final int GLOBALS = 21;
+
+    // Bits of the FLAGS field
+    static final int GAME_OVER = 1, VICTORY = 2, SWARM = 4, BOSS_LEVEL = 8, WEAPON = 16, GAME_STARTED = 32,
+            SHOW_GO = 64, SHOW_LEVEL_UP = 128, FOOD_COLLECTED = 256, PARTNER = 512;
+
+    int tick;
+    final int[] globals = new int[GLOBALS];
+    final Entities enemies = new Entities(), bossRobots = new Entities(), projectiles = new Entities();
+
+    public int getTick() {
+        return tick;
+    }
+
+    boolean is(int flag) {
+        return (globals[FLAGS] & flag) != 0;
+    }
+
+    static int quantise(float position) {
+        return Math.round(position * POSITION_SCALE);
+    }
+
+    static float position(int quantised) {
+        return (float) quantised / POSITION_SCALE;
+    }
+
+    // Copies the simulation as it is after the given tick
+    public void capture(GameSimulation sim, int tick) {
+        this.tick = tick;
+        globals[TICK_RATE] = sim.getTickRate();
+        globals[LEVEL] = sim.getCurrentLevel();
+        globals[SURVIVAL_TIME] = sim.getSurvivalTime();
+        globals[SCORE_FOR_NEXT_LEVEL] = sim.getScoreForNextLevel();
+        globals[COUNTDOWN] = sim.getCountdown();
+        globals[LIVES] = sim.getLives();
+        globals[MAX_LIVES] = sim.getMaxLives();
+        globals[INVINCIBILITY] = sim.getInvincibilityTimer();
+        int materials = 0, current = 0;
+        for (int level = 1; level < GameSimulation.BOSS_LEVEL; level++) {
+            if (sim.hasCollectedMaterial(level)) {
+                materials |= 1 << level;
+            }
+            if (sim.getCurrentMaterial() != null && sim.getCurrentMaterial() == sim.getMaterial(level)) {
+                current = level;
+            }
+        }
+        globals[COLLECTED_MATERIALS] = materials;
+        globals[FLAGS] = (sim.isGameOver() ? GAME_OVER : 0) | (sim.isVictory() ? VICTORY : 0)
+                | (sim.isSwarmMode() ? SWARM : 0) | (sim.isBossLevel() ? BOSS_LEVEL : 0)
+                | (sim.hasWeapon() ? WEAPON : 0) | (sim.isGameStarted() ? GAME_STARTED : 0)
+                | (sim.isShowGoScreen() ? SHOW_GO : 0) | (sim.isShowLevelUpMessage() ? SHOW_LEVEL_UP : 0)
+                | (sim.isFoodCollected() ? FOOD_COLLECTED : 0) | (sim.isPartnerJoined() ? PARTNER : 0);
+        globals[FOOD_X] = sim.getFoodX();
+        globals[FOOD_Y] = sim.getFoodY();
+        globals[FOOD_SIZE] = sim.getFoodSize();
+        globals[MATERIAL] = current;
+        globals[MATERIAL_X] = current > 0 ? sim.getCurrentMaterial().x : 0;
+        globals[MATERIAL_Y] = current > 0 ? sim.getCurrentMaterial().y : 0;
+        globals[ROBOT_X] = quantise(sim.getRobotX());
+        globals[ROBOT_Y] = quantise(sim.getRobotY());
+        globals[ROBOT_SIZE] = sim.getRobotSize();
+        globals[PARTNER_X] = quantise(sim.getPartnerX());
+        globals[PARTNER_Y] = quantise(sim.getPartnerY());
+        enemies.capture(sim.getEnemies());
+        bossRobots.capture(sim.getBossRobots());
+        projectiles.capture(sim.getProjectiles());
+    }
+
+    public void copyFrom(WorldState other) {
+        tick = other.tick;
+        System.arraycopy(other.globals, 0, globals, 0, GLOBALS);
+        enemies.copyFrom(other.enemies);
+        bossRobots.copyFrom(other.bossRobots);
+        projectiles.copyFrom(other.projectiles);
+    }
+
+    // Whether two states hold the same world (the tick aside)
+    public boolean sameAs(WorldState other) {
+        return Arrays.equals(globals, other.globals) && enemies.sameAs(other.enemies)
+                && bossRobots.sameAs(other.bossRobots) && projectiles.sameAs(other.projectiles);
+    }
+
+    // Writes this state as a delta against base, or in full if base is null
+    public void writeDelta(WorldState base, ByteBuffer out) {
+        int changed = 0;
+        for (int field = 0; field < GLOBALS; field++) {
+            if (base == null || globals[field] != base.globals[field]) {
+                changed |= 1 << field;
+            }
+        }
+        putVarint(out, changed);
+        for (int field = 0; field < GLOBALS; field++) {
+            if ((changed & (1 << field)) != 0) {
+                putVarint(out, zigzag(globals[field] - (base != null ? base.globals[field] : 0)));
+            }
+        }
+        enemies.writeDelta(base != null ? base.enemies : Entities.NONE, out);
+        bossRobots.writeDelta(base != null ? base.bossRobots : Entities.NONE, out);
+        projectiles.writeDelta(base != null ? base.projectiles : Entities.NONE, out);
+    }
+
+    // Becomes base with a delta applied (or what a full snapshot holds, if base is null). Throws
+    // IllegalArgumentException or BufferUnderflowException if the delta doesn't fit the base.
+    public void readDelta(WorldState base, ByteBuffer in, int tick) {
+        int changed = getVarint(in);
+        for (int field = 0; field < GLOBALS; field++) {
+            int value = base != null ? base.globals[field] : 0;
+            if ((changed & (1 << field)) != 0) {
+                value += unzigzag(getVarint(in));
+            }
+            globals[field] = value;
+        }
+        enemies.readDelta(base != null ? base.enemies : Entities.NONE, in);
+        bossRobots.readDelta(base != null ? base.bossRobots : Entities.NONE, in);
+        projectiles.readDelta(base != null ? base.projectiles : Entities.NONE, in);
+        if (!GameSimulation.isSupportedTickRate(globals[TICK_RATE])) {
+            throw new IllegalArgumentException("Snapshot has an unsupported tick rate");
+        }
+        this.tick = tick;
+    }
+
+    static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed number in snapshot");
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // One entity store, sorted by slot
+    static class Entities {
+        static final Entities NONE = new Entities();
+
+        // Bits of an entity's change mask
+        private static final int X = 1, Y = 2, SIZE = 4, TYPE = 8, NEW = 16;
+
+        int count;
+        int[] handle = new int[16], x = new int[16], y = new int[16], size = new int[16], type = new int[16];
+
+        // Scratch for capturing and coding
+        private long[] order = new long[16];
+        private int[] match = new int[16], masks = new int[16], removed = new int[16];
+
+        private void ensureCapacity(int capacity) {
+            if (handle.length < capacity) {
+                int grown = Math.max(capacity, handle.length * 2);
+                handle = Arrays.copyOf(handle, grown);
+                x = Arrays.copyOf(x, grown);
+                y = Arrays.copyOf(y, grown);
+                size = Arrays.copyOf(size, grown);
+                type = Arrays.copyOf(type, grown);
+                order = new long[grown];
+                match = new int[grown];
+                masks = new int[grown];
+            }
+        }
+
+        void capture(EntityStore store) {
+            count = store.count();
+            ensureCapacity(count);
+            for (int i = 0; i < count; i++) {
+                order[i] = (long) EntityStore.slotOf(store.handle(i)) << 32 | i;
+            }
+            Arrays.sort(order, 0, count);
+            for (int k = 0; k < count; k++) {
+                int i = (int) order[k];
+                handle[k] = store.handle(i);
+                x[k] = quantise(store.x[i]);
+                y[k] = quantise(store.y[i]);
+                size[k] = store.size[i];
+                type[k] = store.type[i];
+            }
+        }
+
+        void copyFrom(Entities other) {
+            count = other.count;
+            ensureCapacity(count);
+            System.arraycopy(other.handle, 0, handle, 0, count);
+            System.arraycopy(other.x, 0, x, 0, count);
+            System.arraycopy(other.y, 0, y, 0, count);
+            System.arraycopy(other.size, 0, size, 0, count);
+            System.arraycopy(other.type, 0, type, 0, count);
+        }
+
+        boolean sameAs(Entities other) {
+            return count == other.count && Arrays.equals(handle, 0, count, other.handle, 0, count)
+                    && Arrays.equals(x, 0, count, other.x, 0, count) && Arrays.equals(y, 0, count, other.y, 0, count)
+                    && Arrays.equals(size, 0, count, other.size, 0, count)
+                    && Arrays.equals(type, 0, count, other.type, 0, count);
+        }
+
+        // Index of the entity with this handle in a store sorted by slot, at or after from, or -1
+        private static int find(Entities in, int from, int wanted) {
+            int slot = EntityStore.slotOf(wanted);
+            while (from < in.count && EntityStore.slotOf(in.handle[from]) < slot) {
+                from++;
+            }
+            return from < in.count && in.handle[from] == wanted ? from : -(from + 1) - 1;
+        }
+
+        void writeDelta(Entities base, ByteBuffer out) {
+            // Gone: entities of the base that this state doesn't have
+            if (removed.length < base.count) {
+                removed = new int[Math.max(base.count, removed.length * 2)];
+            }
+            int removedCount = 0;
+            for (int b = 0, k = 0; b < base.count; b++) {
+                int found = find(this, k, base.handle[b]);
+                if (found >= 0) {
+                    k = found + 1;
+                } else {
+                    k = -found - 2;
+                    removed[removedCount++] = EntityStore.slotOf(base.handle[b]);
+                }
+            }
+            putVarint(out, removedCount);
+            for (int r = 0, previous = 0; r < removedCount; r++) {
+                putVarint(out, removed[r] - previous);
+                previous = removed[r];
+            }
+
+            // New or changed
+            int updates = 0;
+            for (int k = 0, b = 0; k < count; k++) {
+                int found = find(base, b, handle[k]);
+                match[k] = found;
+                b = found >= 0 ? found + 1 : -found - 2;
+                int mask = NEW | X | Y | SIZE | TYPE;
+                if (found >= 0) {
+                    mask = (x[k] != base.x[found] ? X : 0) | (y[k] != base.y[found] ? Y : 0)
+                            | (size[k] != base.size[found] ? SIZE : 0) | (type[k] != base.type[found] ? TYPE : 0);
+                }
+                masks[k] = mask;
+                if (mask != 0) {
+                    updates++;
+                }
+            }
+            putVarint(out, updates);
+            for (int k = 0, previous = 0; k < count; k++) {
+                int mask = masks[k];
+                if (mask == 0) {
+                    continue;
+                }
+                int slot = EntityStore.slotOf(handle[k]);
+                putVarint(out, slot - previous);
+                previous = slot;
+                out.put((byte) mask);
+                int b = match[k];
+                if ((mask & NEW) != 0) {
+                    out.put((byte) (handle[k] >>> 24));
+                }
+                if ((mask & X) != 0) {
+                    putVarint(out, zigzag(x[k] - (b >= 0 ? base.x[b] : 0)));
+                }
+                if ((mask & Y) != 0) {
+                    putVarint(out, zigzag(y[k] - (b >= 0 ? base.y[b] : 0)));
+                }
+                if ((mask & SIZE) != 0) {
+                    putVarint(out, size[k]);
+                }
+                if ((mask & TYPE) != 0) {
+                    putVarint(out, type[k]);
+                }
+            }
+        }
+
+        void readDelta(Entities base, ByteBuffer in) {
+            int removedCount = getVarint(in);
+            if (removedCount > base.count) {
+                throw new IllegalArgumentException("Snapshot removes more entities than its base has");
+            }
+            if (removed.length < removedCount) {
+                removed = new int[Math.max(removedCount, removed.length * 2)];
+            }
+            for (int r = 0, slot = 0; r < removedCount; r++) {
+                slot += getVarint(in);
+                removed[r] = slot;
+            }
+            int updates = getVarint(in);
+            if (updates > in.remaining()) {
+                throw new IllegalArgumentException("Snapshot has more entities than bytes");
+            }
+            ensureCapacity(base.count + updates);
+
+            // Merge the base (less what is gone) with the updates, both in slot order
+            count = 0;
+            int b = 0, r = 0, u = 0;
+            int updateSlot = updates > 0 ? getVarint(in) : 0;
+            while (b < base.count || u < updates) {
+                int baseSlot = b < base.count ? EntityStore.slotOf(base.handle[b]) : Integer.MAX_VALUE;
+                if (r < removedCount && removed[r] == baseSlot) {
+                    r++;
+                    b++;
+                    continue;
+                }
+                if (u < updates && updateSlot <= baseSlot) {
+                    int mask = in.get() & 0xFF;
+                    int k = count++;
+                    if ((mask & NEW) != 0) {
+                        handle[k] = (in.get() & 0xFF) << 24 | updateSlot;
+                        x[k] = y[k] = size[k] = type[k] = 0;
+                    } else if (updateSlot == baseSlot) {
+                        handle[k] = base.handle[b];
+                        x[k] = base.x[b];
+                        y[k] = base.y[b];
+                        size[k] = base.size[b];
+                        type[k] = base.type[b];
+                        b++;
+                    } else {
+                        throw new IllegalArgumentException("Snapshot changes an entity its base doesn't have");
+                    }
+                    if ((mask & X) != 0) {
+                        x[k] += unzigzag(getVarint(in));
+                    }
+                    if ((mask & Y) != 0) {
+                        y[k] += unzigzag(getVarint(in));
+                    }
+                    if ((mask & SIZE) != 0) {
+                        size[k] = getVarint(in);
+                    }
+                    if ((mask & TYPE) != 0) {
+                        type[k] = getVarint(in);
+                    }
+                    if (++u < updates) {
+                        updateSlot += getVarint(in);
+                    }
+                } else {
+                    int k = count++;
+                    handle[k] = base.handle[b];
+                    x[k] = base.x[b];
+                    y[k] = base.y[b];
+                    size[k] = base.size[b];
+                    type[k] = base.type[b];
+                    b++;
+                }
+            }
+            if (r != removedCount) {
+                throw new IllegalArgumentException("Snapshot removes entities its base doesn't have");
+            }
+        }
+
+        // Fills a store for drawing: positions from this state, previous positions from the same
+        // entity in previous (or this state's, for one that is new)
+        void copyForRendering(Entities previous, EntityStore into) {
+            into.clear();
+            for (int k = 0, p = 0; k < count; k++) {
+                int found = find(previous, p, handle[k]);
+                int i = into.add(position(x[k]), position(y[k]), size[k], 0, type[k]);
+                if (found >= 0) {
+                    into.prevX[i] = position(previous.x[found]);
+                    into.prevY[i] = position(previous.y[found]);
+                    p = found + 1;
+                } else {
+                    p = -found - 2;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// A small JMH-style harness: warm-up, then several timed rounds, reporting ops/s with its
+// spread and bytes allocated per op (what JMH's -prof gc shows as gc.alloc.rate.norm).
+// Each round is made of iterations: setup() runs untimed, then run() is timed for a fixed
+// number of ops, like JMH's @Setup(Level.Iteration) with a batch size.
+// Results can be saved and later compared against, so a change can be checked against a baseline.
+public class BenchmarkRunner {
+    private static final long WARMUP_NANOS = 2_000_000_000L;
+    private static final long ROUND_NANOS = 1_000_000_000L;
+    private static final int ROUNDS = 5;
+
+    public interface Case {
+        void setup();
+
+        void run();
+    }
+
+    private final String filter;
+    private final Map<String, double[]> baseline = new HashMap<>();
+    private final List<String> results = new ArrayList<>();
+    private long allocated; // by run() only, summed over the measured iterations
+
+    public BenchmarkRunner(String filter, Path baselineFile) throws IOException {
+        this.filter = filter;
+        if (baselineFile != null) {
+            for (String line : Files.readAllLines(baselineFile, StandardCharsets.UTF_8)) {
+                String[] fields = line.split("\t");
+                baseline.put(fields[0], new double[] {Double.parseDouble(fields[1]), Double.parseDouble(fields[2])});
+            }
+        }
+        System.out.printf("%-48s %14s %10s %12s %10s%n", "Benchmark", "ops/s", "error", "bytes/op", "vs base");
+    }
+
+    public void run(String name, int opsPerIteration, Case benchmark) {
+        if (filter != null && !name.contains(filter)) {
+            return;
+        }
+
+        // Warm-up, so the JIT has compiled everything before we measure
+        long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < warmupEnd) {
+            iteration(benchmark, opsPerIteration);
+        }
+
+        double[] opsPerSecond = new double[ROUNDS];
+        long ops = 0;
+        allocated = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long timed = 0, roundOps = 0;
+            while (timed < ROUND_NANOS) {
+                timed += iteration(benchmark, opsPerIteration);
+                roundOps += opsPerIteration;
+            }
+            opsPerSecond[round] = roundOps * 1e9 / timed;
+            ops += roundOps;
+        }
+
+        double mean = 0;
+        for (double value : opsPerSecond) {
+            mean += value / ROUNDS;
+        }
+        double variance = 0;
+        for (double value : opsPerSecond) {
+            variance += (value - mean) * (value - mean) / (ROUNDS - 1);
+        }
+        double bytesPerOp = AllocationProbe.isSupported() ? (double) allocated / ops : Double.NaN;
+
+        String change = "";
+        double[] base = baseline.get(name);
+        if (base != null) {
+            change = String.format("%+.1f%%", (mean / base[0] - 1) * 100);
+        }
+        System.out.printf("%-48s %14.1f %10.1f %12.1f %10s%n", name, mean, Math.sqrt(variance), bytesPerOp, change);
+        results.add(name + "\t" + mean + "\t" + bytesPerOp);
+    }
+
+    // Returns the nanoseconds spent in run(), leaving out setup()
+    private long iteration(Case benchmark, int ops) {
+        benchmark.setup();
+        long before = AllocationProbe.currentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int op = 0; op < ops; op++) {
+            benchmark.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        allocated += AllocationProbe.currentThreadAllocatedBytes() - before;
+        return elapsed;
+    }
+
+    public void save(Path file) throws IOException {
+        Files.write(file, results, StandardCharsets.UTF_8);
+        System.out.println("Saved results to " + file);
+    }
+}
@@ -0,0 +1,228 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+// Benchmarks for the simulation hot paths: entity movement and the player hit test, boss split
+// cascades, projectile updates and a full tick at growing swarm sizes.
+// Build and run from the project root (the game classes share the default package):
+//   javac -d out *.java bench/*.java
+//   java -cp out SimulationBenchmarks [--save results.tsv] [--baseline results.tsv] [name filter]
+// With the vector MoveKernel compiled in (see MoveKernel) and --add-modules jdk.incubator.vector
+// on the java command line, the "simd" cases run too and everything else uses it.
+// --save writes this run's results; --baseline prints each result's change against a saved run.
+// Everything runs in one JVM, so earlier cases shape the JIT profile of later ones: only compare
+// runs made with the same filter.
+public class SimulationBenchmarks {
+    private static final long SEED = 42;
+
+    public static void main(String[] args) throws IOException {
+        Path save = null, baseline = null;
+        String filter = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--save")) {
+                save = Paths.get(args[++i]);
+            } else if (args[i].equals("--baseline")) {
+                baseline = Paths.get(args[++i]);
+            } else {
+                filter = args[i];
+            }
+        }
+
+        BenchmarkRunner runner = new BenchmarkRunner(filter, baseline);
+
+        runner.run("moveTowards [1000 entities]", 100, new MoveBenchmark(1000, false));
+        runner.run("moveAndCollide [1000 entities]", 100, new MoveBenchmark(1000, true));
+        runner.run("moveAndCollide flow field [1000 entities]", 100, new MoveBenchmark(1000, true, true));
+        runner.run("moveAndCollide flow field [100000 entities]", 1, new MoveBenchmark(100_000, true, true));
+        runner.run("moveAndCollide [100000 entities]", 1, new MoveBenchmark(100_000, true));
+
+        // The same kernels side by side, at swarm sizes
+        MoveKernel vector = MoveKernel.vector();
+        for (int count : new int[] {10_000, 100_000}) {
+            int ops = count >= 100_000 ? 1 : 10;
+            runner.run("moveAndCollide scalar [" + count + " entities]", ops,
+                    new MoveBenchmark(count, true, false, MoveKernel.SCALAR));
+            runner.run("moveAndCollide flow field scalar [" + count + " entities]", ops,
+                    new MoveBenchmark(count, true, true, MoveKernel.SCALAR));
+            if (vector != null) {
+                runner.run("moveAndCollide simd [" + count + " entities]", ops,
+                        new MoveBenchmark(count, true, false, vector));
+                runner.run("moveAndCollide flow field simd [" + count + " entities]", ops,
+                        new MoveBenchmark(count, true, true, vector));
+            }
+        }
+
+        runner.run("splitBossRobot cascade [1 boss]", 10, new SplitBenchmark(1));
+        runner.run("splitBossRobot cascade [64 bosses]", 10, new SplitBenchmark(64));
+
+        int[][] projectileCases = {{10, 1}, {100, 10}, {1000, 100}, {10_000, 1000}};
+        for (int[] counts : projectileCases) {
+            runner.run("updateProjectiles [" + counts[0] + " projectiles, " + counts[1] + " bosses]", 10,
+                    new ProjectileBenchmark(counts[0], counts[1]));
+        }
+
+        int[] swarmSizes = {10, 1000, 10_000, 100_000};
+        for (int enemies : swarmSizes) {
+            runner.run("tick [" + enemies + " enemies]", 100, new TickBenchmark(enemies));
+        }
+
+        if (save != null) {
+            runner.save(save);
+        }
+    }
+
+    // Moves a store of entities towards the middle, optionally with the player hit test, straight
+    // or along a flow field (rebuilt every run, as every tick does), with the given MoveKernel
+    private static class MoveBenchmark implements BenchmarkRunner.Case {
+        private final EntityStore store;
+        private final boolean collide;
+        private final FlowField field;
+        private final EntityMover mover;
+        private final Random random = new Random(SEED);
+        private int sink;
+
+        MoveBenchmark(int count, boolean collide) {
+            this(count, collide, false);
+        }
+
+        MoveBenchmark(int count, boolean collide, boolean flowField) {
+            this(count, collide, flowField, MoveKernel.fromSystemProperties());
+        }
+
+        MoveBenchmark(int count, boolean collide, boolean flowField, MoveKernel kernel) {
+            this.mover = EntityMover.serial(kernel);
+            this.collide = collide;
+            this.field = flowField ? new FlowField(GameSimulation.WIDTH, GameSimulation.HEIGHT, FlowField.DEFAULT_CELL_SIZE) : null;
+            store = new EntityStore(count);
+            for (int i = 0; i < count; i++) {
+                store.add(0, 0, 30, 45 + random.nextFloat() * 60, GameSimulation.TYPE_ENEMY);
+            }
+        }
+
+        // Scatter them again, so they don't all end up sitting on the target
+        @Override
+        public void setup() {
+            for (int i = 0; i < store.count(); i++) {
+                store.x[i] = random.nextInt(GameSimulation.WIDTH);
+                store.y[i] = random.nextInt(GameSimulation.HEIGHT);
+            }
+        }
+
+        @Override
+        public void run() {
+            float tickSeconds = 1.0f / GameSimulation.DEFAULT_TICK_RATE;
+            if (field != null) {
+                field.build(300, 300);
+            }
+            if (collide) {
+                sink += mover.moveAndCollide(store, field, 300, 300, tickSeconds, 306, 306, 324, 324);
+            } else {
+                for (int i = 0; i < store.count(); i++) {
+                    EntityMover.moveTowards(store, i, 300, 300, tickSeconds);
+                }
+            }
+        }
+    }
+
+    // Adds full-size bosses and splits them (and all their children) until none are left
+    private static class SplitBenchmark implements BenchmarkRunner.Case {
+        private final int bosses;
+        private final GameSimulation simulation = newSimulation(GameSimulation.BOSS_LEVEL, 0);
+        private final Random random = new Random(SEED);
+
+        SplitBenchmark(int bosses) {
+            this.bosses = bosses;
+        }
+
+        @Override
+        public void setup() {
+        }
+
+        @Override
+        public void run() {
+            EntityStore store = simulation.getBossRobots();
+            store.clear();
+            for (int i = 0; i < bosses; i++) {
+                store.add(random.nextInt(500), random.nextInt(500), 90, 30, GameSimulation.TYPE_BOSS);
+            }
+            while (!store.isEmpty()) {
+                simulation.splitBossRobot(0);
+            }
+        }
+    }
+
+    // Projectiles flying in every direction through a field of bosses
+    private static class ProjectileBenchmark implements BenchmarkRunner.Case {
+        private final int projectiles, bosses;
+        private final GameSimulation simulation = newSimulation(GameSimulation.BOSS_LEVEL, 0);
+        private final Random random = new Random(SEED);
+
+        ProjectileBenchmark(int projectiles, int bosses) {
+            this.projectiles = projectiles;
+            this.bosses = bosses;
+        }
+
+        @Override
+        public void setup() {
+            EntityStore bossStore = simulation.getBossRobots();
+            bossStore.clear();
+            for (int i = 0; i < bosses; i++) {
+                bossStore.add(random.nextInt(550), random.nextInt(550), 50, 30, GameSimulation.TYPE_BOSS);
+            }
+            EntityStore store = simulation.getProjectiles();
+            store.clear();
+            for (int i = 0; i < projectiles; i++) {
+                int index = store.add(random.nextInt(GameSimulation.WIDTH), random.nextInt(GameSimulation.HEIGHT), 10, 240, 0);
+                store.vx[index] = (random.nextInt(3) - 1) * 240;
+                store.vy[index] = (random.nextInt(3) - 1) * 240;
+            }
+        }
+
+        @Override
+        public void run() {
+            simulation.updateProjectiles();
+        }
+    }
+
+    // A whole game tick with a swarm chasing a player who walks in circles
+    private static class TickBenchmark implements BenchmarkRunner.Case {
+        private final int enemies;
+        private final InputState input = new InputState();
+        private GameSimulation simulation;
+        private int tick;
+
+        TickBenchmark(int enemies) {
+            this.enemies = enemies;
+        }
+
+        // A fresh game each iteration: the swarm needs a few seconds to reach the player, so
+        // the measured ticks never hit game over
+        @Override
+        public void setup() {
+            simulation = newSimulation(1, enemies);
+            tick = 0;
+        }
+
+        @Override
+        public void run() {
+            input.clear();
+            int direction = (tick++ / 30) % 4;
+            if (direction == 0) input.up = true;
+            if (direction == 1) input.right = true;
+            if (direction == 2) input.down = true;
+            if (direction == 3) input.left = true;
+            simulation.step(input);
+        }
+    }
+
+    // A game at the given level with the given total number of regular enemies
+    private static GameSimulation newSimulation(int level, int enemies) {
+        GameSimulation simulation = new GameSimulation(GameSimulation.DEFAULT_TICK_RATE, SEED);
+        simulation.skipCountdown();
+        simulation.jumpToLevel(level);
+        simulation.addEnemies(enemies - simulation.getEnemies().count());
+        simulation.step(new InputState()); // sizes the lazily grown buffers
+        return simulation;
+    }
+}
@@ -0,0 +1,102 @@
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// MoveKernel on the Vector API: each step loads one lane per entity from the store's columns,
+// steers, moves and tests the whole vector, and stores the results back. Entities past the last
+// full vector go through the scalar loop.
+// Every lane does what MoveKernel does for one entity, in the same order and with no fused
+// multiply-adds, so the results are the same bits:
+// - straight: the vector to the target, divided by its length where that is above zero
+// - flow field: each lane's cell and direction are looked up one lane at a time, with the same
+//   code as FlowField.move; lanes in the target's cell keep the straight direction, and those
+//   in the second target's get theirs worked out there like moveTowards does
+// - the hit test converts size to float before adding, as x + size does, and the highest
+//   overlapping lane wins
+public class VectorMoveKernel extends MoveKernel {
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class, FLOATS.vectorShape());
+
+    // Flow field directions are gathered into these a lane at a time: on JDK 17 the Vector API's
+    // own gathers and float-to-int conversions aren't compiled to instructions, and their
+    // fallbacks allocate. One set per thread, as the parallel chunks share a kernel.
+    private static class Gather {
+        final float[] x = new float[FLOATS.length()], y = new float[FLOATS.length()];
+        final boolean[] straight = new boolean[FLOATS.length()];
+    }
+
+    private final ThreadLocal<Gather> gathers = ThreadLocal.withInitial(Gather::new);
+
+    @Override
+    public String getName() {
+        return "vector (" + FLOATS.length() + " lanes)";
+    }
+
+    @Override
+    int update(EntityStore store, FlowField field, int from, int to, float targetX, float targetY,
+               float tickSeconds, float minX, float minY, float maxX, float maxY) {
+        Gather gather = field != null ? gathers.get() : null;
+        int hit = -1;
+        int i = from;
+        for (int end = from + FLOATS.loopBound(to - from); i < end; i += FLOATS.length()) {
+            FloatVector x = FloatVector.fromArray(FLOATS, store.x, i);
+            FloatVector y = FloatVector.fromArray(FLOATS, store.y, i);
+
+            FloatVector dx = FloatVector.broadcast(FLOATS, targetX).sub(x);
+            FloatVector dy = FloatVector.broadcast(FLOATS, targetY).sub(y);
+            FloatVector length = dx.mul(dx).add(dy.mul(dy)).sqrt();
+            VectorMask<Float> moving = length.compare(VectorOperators.GT, 0);
+            dx = dx.div(length, moving);
+            dy = dy.div(length, moving);
+
+            if (field != null) {
+                boolean allStraight = true;
+                for (int lane = 0; lane < gather.x.length; lane++) {
+                    int column = field.column(store.x[i + lane]), row = field.row(store.y[i + lane]);
+                    int cell = field.lookupBase + row * field.lookupStride + column;
+                    gather.straight[lane] = column == field.targetColumn && row == field.targetRow;
+                    gather.x[lane] = field.lookupX[cell];
+                    gather.y[lane] = field.lookupY[cell];
+                    if (column == field.secondColumn && row == field.secondRow) {
+                        float towardsX = field.secondX - store.x[i + lane], towardsY = field.secondY - store.y[i + lane];
+                        float distance = (float) Math.sqrt(towardsX*towardsX + towardsY*towardsY);
+                        if (distance > 0) {
+                            towardsX /= distance;
+                            towardsY /= distance;
+                        }
+                        gather.x[lane] = towardsX;
+                        gather.y[lane] = towardsY;
+                    }
+                    allStraight &= gather.straight[lane];
+                }
+                if (!allStraight) {
+                    VectorMask<Float> straight = VectorMask.fromArray(FLOATS, gather.straight, 0);
+                    dx = FloatVector.fromArray(FLOATS, gather.x, 0).blend(dx, straight);
+                    dy = FloatVector.fromArray(FLOATS, gather.y, 0).blend(dy, straight);
+                }
+            }
+
+            FloatVector speed = FloatVector.fromArray(FLOATS, store.speed, i);
+            FloatVector vx = dx.mul(speed), vy = dy.mul(speed);
+            vx.intoArray(store.vx, i);
+            vy.intoArray(store.vy, i);
+            x = x.add(vx.mul(tickSeconds));
+            y = y.add(vy.mul(tickSeconds));
+            x.intoArray(store.x, i);
+            y.intoArray(store.y, i);
+
+            FloatVector size = (FloatVector) IntVector.fromArray(INTS, store.size, i).convert(VectorOperators.I2F, 0);
+            VectorMask<Float> touching = x.compare(VectorOperators.LT, maxX)
+                    .and(x.add(size).compare(VectorOperators.GT, minX))
+                    .and(y.compare(VectorOperators.LT, maxY))
+                    .and(y.add(size).compare(VectorOperators.GT, minY));
+            if (touching.anyTrue()) {
+                hit = i + touching.lastTrue();
+            }
+        }
+        int tailHit = super.update(store, field, i, to, targetX, targetY, tickSeconds, minX, minY, maxX, maxY);
+        return tailHit >= 0 ? tailHit : hit;
+    }
+}